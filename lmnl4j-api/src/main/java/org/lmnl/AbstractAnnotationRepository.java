@@ -5,6 +5,9 @@ import java.util.Set;
 
 public abstract class AbstractAnnotationRepository implements AnnotationRepository {
 
+	public Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping) {
+		return find(text, names, ranges, overlapping, false);
+	}
 
 	public Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges) {
 		return find(text, names, ranges, true);
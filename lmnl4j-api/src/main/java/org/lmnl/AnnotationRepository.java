@@ -4,6 +4,29 @@ import java.util.Set;
 
 public interface AnnotationRepository {
 
+	/**
+	 * Finds range annotations of a text.
+	 * 
+	 * @param text
+	 *                the annotated text
+	 * @param names
+	 *                the names of the annotations to find; <code>null</code>
+	 *                or empty for all names
+	 * @param ranges
+	 *                the text segments the annotations have to be located
+	 *                in; <code>null</code> or empty for the whole text
+	 * @param overlapping
+	 *                whether annotations overlapping with the given ranges
+	 *                are found or only those enclosed by them
+	 * @param documentOrder
+	 *                whether annotations are ordered like their
+	 *                {@link Range#compareTo(Range) ranges}, i.e. enclosing
+	 *                annotations first; otherwise they are ordered by start
+	 *                and end offset ascending
+	 * @return the matching annotations
+	 */
+	Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping, boolean documentOrder);
+
 	Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping);
 	
 	Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges);
@@ -14,4 +37,47 @@ public interface AnnotationRepository {
 
 	Iterable<Annotation> find(Text text);
 
+	/**
+	 * Finds the annotations of the XML nodes enclosing the node an annotation
+	 * has been parsed from.
+	 * 
+	 * @param annotation
+	 *                the annotation of an XML node
+	 * @return the ancestors in document order, i.e. outermost first; empty if
+	 *         the annotation does not stem from an XML node
+	 */
+	Iterable<Annotation> findAncestors(Annotation annotation);
+
+	/**
+	 * Finds the annotations of all XML nodes contained in the node an
+	 * annotation has been parsed from.
+	 * 
+	 * @param annotation
+	 *                the annotation of an XML node
+	 * @return the descendants in document order; empty if the annotation does
+	 *         not stem from an XML node
+	 */
+	Iterable<Annotation> findDescendants(Annotation annotation);
+
+	/**
+	 * Finds the annotations of the XML nodes directly contained in the node an
+	 * annotation has been parsed from.
+	 * 
+	 * @param annotation
+	 *                the annotation of an XML node
+	 * @return the children in document order; empty if the annotation does
+	 *         not stem from an XML node
+	 */
+	Iterable<Annotation> findChildren(Annotation annotation);
+
+	/**
+	 * Finds the annotations of the XML nodes sharing their parent with the
+	 * node an annotation has been parsed from.
+	 * 
+	 * @param annotation
+	 *                the annotation of an XML node
+	 * @return the siblings in document order, excluding the given annotation;
+	 *         empty if the annotation does not stem from an XML node
+	 */
+	Iterable<Annotation> findSiblings(Annotation annotation);
 }
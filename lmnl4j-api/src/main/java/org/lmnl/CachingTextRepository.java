@@ -0,0 +1,318 @@
+package org.lmnl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Caches the contents and lengths of texts read from another repository.
+ *
+ * <p/>
+ *
+ * Contents are cached in pages of a fixed number of characters, keyed by
+ * text and page number, and evicted in least-recently-used order once the
+ * cached pages exceed a given number of characters. Range reads are served
+ * from cached pages, fetching missing ones from the underlying repository in
+ * one bulk read. Reads of whole texts are passed through, as are writes,
+ * which invalidate the cached pages and length of the written text.
+ *
+ * <p/>
+ *
+ * The cache is shared by concurrent readers; hit, miss and eviction counts
+ * are exposed for monitoring. Until a write {@link #afterWrite(Text)
+ * completes}, reads of the written text bypass the cache, and reads of
+ * contents fetched before an invalidation are not cached. By default writes
+ * complete immediately, which is only safe if the underlying repository is
+ * not transactional or shared by a single transaction;
+ * {@link org.lmnl.rdbms.TransactionalTextCache} completes them once the
+ * writing transaction has ended.
+ */
+public class CachingTextRepository implements TextRepository {
+	private final TextRepository delegate;
+	private final int pageSize;
+	private final long maxChars;
+
+	private final LinkedHashMap<Page, String> pages = new LinkedHashMap<Page, String>(16, 0.75f, true);
+	private final Map<Text, Integer> lengths = Maps.newHashMap();
+	private final Map<Text, Integer> writing = Maps.newHashMap();
+	private long cachedChars = 0;
+	private long generation = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache of 8K character pages, holding up to 16M characters.
+	 */
+	public CachingTextRepository(TextRepository delegate) {
+		this(delegate, 8192, 16 * 1024 * 1024);
+	}
+
+	/**
+	 * @param delegate
+	 *                the repository to read from and write to
+	 * @param pageSize
+	 *                the number of characters per cached page
+	 * @param maxChars
+	 *                the maximum number of characters cached
+	 */
+	public CachingTextRepository(TextRepository delegate, int pageSize, long maxChars) {
+		Preconditions.checkArgument(pageSize > 0);
+		Preconditions.checkArgument(maxChars >= pageSize);
+		this.delegate = delegate;
+		this.pageSize = pageSize;
+		this.maxChars = maxChars;
+	}
+
+	public int length(Text text) throws IOException {
+		final long generation;
+		synchronized (pages) {
+			if (writing.containsKey(text)) {
+				return delegate.length(text);
+			}
+			final Integer length = lengths.get(text);
+			if (length != null) {
+				hits.incrementAndGet();
+				return length;
+			}
+			generation = this.generation;
+		}
+		misses.incrementAndGet();
+		final int length = delegate.length(text);
+		synchronized (pages) {
+			if (generation == this.generation) {
+				lengths.put(text, length);
+			}
+		}
+		return length;
+	}
+
+	public void read(Text text, TextContentReader reader) throws IOException {
+		delegate.read(text, reader);
+	}
+
+	public String read(Text text, Range range) throws IOException {
+		return bulkRead(text, Sets.newTreeSet(Collections.singleton(range))).get(range);
+	}
+
+	public SortedMap<Range, String> bulkRead(Text text, SortedSet<Range> ranges) throws IOException {
+		final int length = length(text);
+
+		final SortedMap<Integer, String> touched = Maps.newTreeMap();
+		final SortedSet<Range> missing = Sets.newTreeSet();
+		final long generation;
+		synchronized (pages) {
+			if (writing.containsKey(text)) {
+				return delegate.bulkRead(text, ranges);
+			}
+			generation = this.generation;
+			for (Range range : ranges) {
+				final int start = Math.min(range.getStart(), length);
+				final int end = Math.min(range.getEnd(), length);
+				for (int pc = start / pageSize; pc * pageSize < end; pc++) {
+					if (touched.containsKey(pc)) {
+						continue;
+					}
+					final String page = pages.get(new Page(text, pc));
+					touched.put(pc, page);
+					if (page == null) {
+						missing.add(new Range(pc * pageSize, Math.min((pc + 1) * pageSize, length)));
+					}
+				}
+			}
+		}
+		hits.addAndGet(touched.size() - missing.size());
+		misses.addAndGet(missing.size());
+
+		if (!missing.isEmpty()) {
+			final SortedMap<Range, String> read = delegate.bulkRead(text, missing);
+			synchronized (pages) {
+				for (Map.Entry<Range, String> page : read.entrySet()) {
+					final int pageNumber = page.getKey().getStart() / pageSize;
+					touched.put(pageNumber, page.getValue());
+					if (generation == this.generation && pages.put(new Page(text, pageNumber), page.getValue()) == null) {
+						cachedChars += page.getValue().length();
+					}
+				}
+				evict();
+			}
+		}
+
+		final SortedMap<Range, String> results = Maps.newTreeMap();
+		final StringBuilder content = new StringBuilder();
+		for (Range range : ranges) {
+			final int start = Math.min(range.getStart(), length);
+			final int end = Math.min(range.getEnd(), length);
+			content.setLength(0);
+			for (int pc = start / pageSize; pc * pageSize < end; pc++) {
+				final String page = touched.get(pc);
+				final int pageStart = pc * pageSize;
+				final int pageEnd = Math.min(page.length(), end - pageStart);
+				content.append(page, Math.min(pageEnd, Math.max(0, start - pageStart)), pageEnd);
+			}
+			results.put(range, content.toString());
+		}
+		return results;
+	}
+
+	public void write(Text text, Reader contents, int contentLength) throws IOException {
+		synchronized (pages) {
+			final Integer pending = writing.get(text);
+			writing.put(text, pending == null ? 1 : pending + 1);
+			invalidate(text);
+		}
+		try {
+			delegate.write(text, contents, contentLength);
+		} finally {
+			afterWrite(text);
+		}
+	}
+
+	/**
+	 * Called once a text has been written to the underlying repository.
+	 *
+	 * <p/>
+	 *
+	 * Completes the write immediately; overridden to defer completion until
+	 * the written contents are visible to all readers.
+	 *
+	 * @see #completeWrite(Text)
+	 */
+	protected void afterWrite(Text text) {
+		completeWrite(text);
+	}
+
+	/**
+	 * Invalidates a written text and resumes caching it, unless other writes
+	 * of it are pending.
+	 */
+	protected final void completeWrite(Text text) {
+		synchronized (pages) {
+			final Integer pending = writing.remove(text);
+			if (pending != null && pending > 1) {
+				writing.put(text, pending - 1);
+			}
+			invalidate(text);
+		}
+	}
+
+	/**
+	 * Removes the cached pages and length of a text.
+	 */
+	public void invalidate(Text text) {
+		synchronized (pages) {
+			generation++;
+			lengths.remove(text);
+			for (Iterator<Map.Entry<Page, String>> it = pages.entrySet().iterator(); it.hasNext();) {
+				final Map.Entry<Page, String> page = it.next();
+				if (page.getKey().text.equals(text)) {
+					cachedChars -= page.getValue().length();
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached pages and lengths.
+	 */
+	public void clear() {
+		synchronized (pages) {
+			generation++;
+			lengths.clear();
+			pages.clear();
+			cachedChars = 0;
+		}
+	}
+
+	private void evict() {
+		for (Iterator<String> it = pages.values().iterator(); cachedChars > maxChars && it.hasNext();) {
+			cachedChars -= it.next().length();
+			it.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public long getMaxChars() {
+		return maxChars;
+	}
+
+	/**
+	 * The number of characters currently cached.
+	 */
+	public long getCachedChars() {
+		synchronized (pages) {
+			return cachedChars;
+		}
+	}
+
+	/**
+	 * The number of pages and lengths found in the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * The number of pages and lengths read from the underlying repository.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * The number of pages evicted to keep the cache within its bounds.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("hits", getHits()).add("misses", getMisses())
+				.add("evictions", getEvictions()).add("chars", getCachedChars()).toString();
+	}
+
+	/**
+	 * Key of a cached page.
+	 */
+	private static class Page {
+		private final Text text;
+		private final int number;
+
+		private Page(Text text, int number) {
+			this.text = text;
+			this.number = number;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj != null && obj instanceof Page) {
+				final Page other = (Page) obj;
+				return number == other.number && text.equals(other.text);
+			}
+			return super.equals(obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(text, number);
+		}
+	}
+}
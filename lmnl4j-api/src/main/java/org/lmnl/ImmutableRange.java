@@ -0,0 +1,254 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl;
+
+import java.io.Serializable;
+
+/**
+ * Immutable address of a text segment.
+ * 
+ * <p/>
+ * 
+ * Offsets and relationships are defined as for {@link Range}; as instances
+ * cannot change, they can be shared without defensive copies, and none of the
+ * predicates allocate. Ranges are converted from and to mutable ones via
+ * {@link #of(Range)} and {@link #toRange()}.
+ * 
+ * <p/>
+ * 
+ * A range can also be {@link #pack() packed} into a <code>long</code>, with
+ * the start offset in the upper and the end offset in the lower 32 bits, so
+ * it can be stored in primitive arrays and collections. Packed ranges compare
+ * numerically by start offset ascending, then by end offset ascending; the
+ * static methods operating on them spare the unpacking.
+ */
+public final class ImmutableRange implements Comparable<ImmutableRange>, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final ImmutableRange NULL = new ImmutableRange(0, 0);
+
+	private final int start;
+	private final int end;
+
+	private ImmutableRange(int start, int end) {
+		if (start < 0 || end < 0 || start > end) {
+			throw new IllegalArgumentException(Range.toString(start, end));
+		}
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Creates a range.
+	 * 
+	 * @throws IllegalArgumentException
+	 *                 if <code>start</code> or <code>end</code> are lower than
+	 *                 zero, or if <code>start</code> is greater than
+	 *                 <code>end</code>
+	 */
+	public static ImmutableRange of(int start, int end) {
+		return (start == 0 && end == 0 ? NULL : new ImmutableRange(start, end));
+	}
+
+	public static ImmutableRange of(Range range) {
+		return of(range.getStart(), range.getEnd());
+	}
+
+	public static ImmutableRange unpack(long packed) {
+		return of(start(packed), end(packed));
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getEnd() {
+		return end;
+	}
+
+	public int length() {
+		return end - start;
+	}
+
+	/**
+	 * Creates a mutable copy of this range.
+	 */
+	public Range toRange() {
+		return new Range(start, end);
+	}
+
+	public long pack() {
+		return pack(start, end);
+	}
+
+	public String applyTo(String text) {
+		return text.substring(start, end);
+	}
+
+	/**
+	 * @see Range#encloses(Range)
+	 */
+	public boolean encloses(ImmutableRange b) {
+		return (start <= b.start) && (end >= b.end);
+	}
+
+	/**
+	 * @see Range#enclosesWithSuffix(Range)
+	 */
+	public boolean enclosesWithSuffix(ImmutableRange b) {
+		return (start == b.start) && (end > b.end);
+	}
+
+	/**
+	 * @see Range#enclosesWithPrefix(Range)
+	 */
+	public boolean enclosesWithPrefix(ImmutableRange b) {
+		return (start < b.start) && (end == b.end);
+	}
+
+	/**
+	 * @see Range#fitsWithin(Range)
+	 */
+	public boolean fitsWithin(ImmutableRange b) {
+		return !equals(b) && (start >= b.start) && (end <= b.end);
+	}
+
+	/**
+	 * @see Range#hasOverlapWith(Range)
+	 */
+	public boolean hasOverlapWith(ImmutableRange b) {
+		return Math.max(start, b.start) < Math.min(end, b.end);
+	}
+
+	/**
+	 * @see Range#precedes(Range)
+	 */
+	public boolean precedes(ImmutableRange b) {
+		return b.start >= end;
+	}
+
+	/**
+	 * @see Range#follows(Range)
+	 */
+	public boolean follows(ImmutableRange b) {
+		return (start >= (b.end - 1));
+	}
+
+	/**
+	 * Yields the overlapping segment of this and another range.
+	 * 
+	 * @return the overlapping segment or <code>null</code>, if the ranges
+	 *         are disjoint
+	 * @see Range#overlap(Range)
+	 */
+	public ImmutableRange overlap(ImmutableRange b) {
+		final int start = Math.max(this.start, b.start);
+		final int end = Math.min(this.end, b.end);
+		return (end >= start ? of(start, end) : null);
+	}
+
+	public ImmutableRange add(int n) {
+		return of(start + n, end + n);
+	}
+
+	/**
+	 * Orders ranges, first by start offset, then by the reverse order of the
+	 * end offsets, like {@link Range#compareTo(Range)}.
+	 */
+	public int compareTo(ImmutableRange o) {
+		return (start == o.start ? o.end - end : start - o.start);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null || !(obj instanceof ImmutableRange)) {
+			return super.equals(obj);
+		}
+		final ImmutableRange b = (ImmutableRange) obj;
+		return (start == b.start) && (end == b.end);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 + start) + end;
+	}
+
+	@Override
+	public String toString() {
+		return Range.toString(start, end);
+	}
+
+	/**
+	 * Packs offsets into a <code>long</code>.
+	 */
+	public static long pack(int start, int end) {
+		return ((long) start << 32) | (end & 0xffffffffL);
+	}
+
+	public static long pack(Range range) {
+		return pack(range.getStart(), range.getEnd());
+	}
+
+	public static int start(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	public static int end(long packed) {
+		return (int) packed;
+	}
+
+	public static int length(long packed) {
+		return end(packed) - start(packed);
+	}
+
+	public static Range toRange(long packed) {
+		return new Range(start(packed), end(packed));
+	}
+
+	/**
+	 * Tests packed ranges for a non-empty overlap.
+	 * 
+	 * @see #hasOverlapWith(ImmutableRange)
+	 */
+	public static boolean hasOverlap(long a, long b) {
+		return Math.max(start(a), start(b)) < Math.min(end(a), end(b));
+	}
+
+	/**
+	 * Tests whether a packed range encloses another.
+	 * 
+	 * @see #encloses(ImmutableRange)
+	 */
+	public static boolean encloses(long a, long b) {
+		return (start(a) <= start(b)) && (end(a) >= end(b));
+	}
+
+	/**
+	 * Compares packed ranges like {@link #compareTo(ImmutableRange)}, i.e.
+	 * in document order.
+	 */
+	public static int compare(long a, long b) {
+		final int aStart = start(a);
+		final int bStart = start(b);
+		return (aStart == bStart ? end(b) - end(a) : aStart - bStart);
+	}
+}
@@ -24,9 +24,7 @@ package org.lmnl;
 import java.io.Serializable;
 import java.util.SortedSet;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Sets;
 
 /**
  * Adresses a text segment, for example a segment, that is annotated by some {@link Annotation annotation}.
@@ -198,8 +196,7 @@ public class Range implements Comparable<Range>, Serializable {
 	 * @return <code>true</code>/<code>false</code>
 	 */
 	public boolean hasOverlapWith(Range b) {
-		final Range overlap = overlap(b);
-		return (overlap != null) && (overlap.length() > 0);
+		return Math.max(start, b.start) < Math.min(end, b.end);
 	}
 
 	/**
@@ -259,7 +256,8 @@ public class Range implements Comparable<Range>, Serializable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(start, end);
+		// equals Objects.hashCode(start, end) without boxing the offsets
+		return 31 * (31 + start) + end;
 	}
 
 	@Override
@@ -294,21 +292,16 @@ public class Range implements Comparable<Range>, Serializable {
 		return new Range(start + n, end + n);
 	}
 
+	/**
+	 * Removes the overlapping segment of another range.
+	 * 
+	 * @param subtrahend
+	 *                a range overlapping with this one
+	 * @return the non-empty remainders
+	 * @see RangeSet#difference(RangeSet)
+	 */
 	public SortedSet<Range> substract(Range subtrahend) {
-	    Preconditions.checkArgument(hasOverlapWith(subtrahend));
-	    
-	    final SortedSet<Range> remainders = Sets.newTreeSet();
-	    if (fitsWithin(subtrahend)) {
-	        return remainders;
-	    } if (enclosesWithPrefix(subtrahend)) {
-	        remainders.add(new Range(subtrahend.start, end));
-	    } else if (enclosesWithSuffix(subtrahend)) {
-	        remainders.add(new Range(start, subtrahend.end));
-	    } else {
-	        remainders.add(new Range(start, subtrahend.start));
-	        remainders.add(new Range(subtrahend.end, end));
-	    }
-	    
-	    return remainders;
+		Preconditions.checkArgument(hasOverlapWith(subtrahend));
+		return RangeSet.of(this).difference(RangeSet.of(subtrahend)).toRanges();
 	}
 }
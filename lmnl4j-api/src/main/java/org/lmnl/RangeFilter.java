@@ -0,0 +1,138 @@
+package org.lmnl;
+
+import java.util.List;
+
+import com.google.common.base.Predicate;
+
+/**
+ * Matches annotations against a set of ranges.
+ *
+ * <p/>
+ *
+ * The ranges are normalized into a sorted sequence of disjoint spans, so
+ * matching an annotation takes a binary search over the spans. For overlap
+ * matches, overlapping and adjacent ranges are merged; empty annotations
+ * located exactly where two merged ranges meet would wrongly match the merged
+ * span, so those points are remembered and excluded. For containment matches,
+ * ranges enclosed by other ranges are dropped.
+ */
+public class RangeFilter implements Predicate<Annotation> {
+
+	protected final boolean overlapping;
+
+	protected final int[] starts;
+	protected final int[] ends;
+	protected int size = 0;
+
+	protected final int[] junctions;
+	protected int junctionCount = 0;
+
+	/**
+	 * @param ranges
+	 *                the ranges to match against
+	 * @param overlapping
+	 *                whether annotations overlapping with the ranges match
+	 *                or only those enclosed by them
+	 */
+	public RangeFilter(Iterable<Range> ranges, boolean overlapping) {
+		this.overlapping = overlapping;
+
+		final List<Range> sorted = Ranges.NATURAL_ORDERING.sortedCopy(ranges);
+		this.starts = new int[sorted.size()];
+		this.ends = new int[sorted.size()];
+		this.junctions = new int[overlapping ? sorted.size() : 0];
+
+		for (Range range : sorted) {
+			final int start = range.getStart();
+			final int end = range.getEnd();
+			if (overlapping) {
+				if (size > 0 && start <= ends[size - 1]) {
+					if (start == ends[size - 1] && (junctionCount == 0 || junctions[junctionCount - 1] != start)) {
+						junctions[junctionCount++] = start;
+					}
+					ends[size - 1] = Math.max(ends[size - 1], end);
+					continue;
+				}
+			} else if (size > 0 && end <= ends[size - 1]) {
+				continue;
+			}
+			starts[size] = start;
+			ends[size] = end;
+			size++;
+		}
+	}
+
+	public boolean isOverlapping() {
+		return overlapping;
+	}
+
+	/**
+	 * The number of disjoint spans the ranges have been normalized into.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getStart(int span) {
+		return starts[span];
+	}
+
+	public int getEnd(int span) {
+		return ends[span];
+	}
+
+	public boolean apply(Annotation input) {
+		final Range range = input.getRange();
+		return matches(range.getStart(), range.getEnd());
+	}
+
+	/**
+	 * Matches a range given by its offsets.
+	 */
+	public boolean matches(int start, int end) {
+		if (overlapping) {
+			if (start == end && binarySearch(junctions, junctionCount, start) >= 0) {
+				return false;
+			}
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (ends[mid] > start) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			return (low < size) && (starts[low] < end);
+		} else {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (starts[mid] > start) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			return (low > 0) && (end <= ends[low - 1]);
+		}
+	}
+
+	private static int binarySearch(int[] values, int length, int key) {
+		int low = 0;
+		int high = length - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			} else if (values[mid] > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+}
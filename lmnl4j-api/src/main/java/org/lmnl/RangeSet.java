@@ -0,0 +1,351 @@
+package org.lmnl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SortedSet;
+
+import com.google.common.collect.Sets;
+
+/**
+ * An immutable set of text offsets, given as ranges covering them.
+ *
+ * <p/>
+ *
+ * The ranges are coalesced into a sorted sequence of disjoint, non-adjacent
+ * and non-empty spans, stored {@link ImmutableRange#pack(int, int) packed}
+ * in a primitive array. Union, intersection and difference of two sets are
+ * thus computed by a single merge of their spans in linear time; the
+ * complement within a range and the test whether a set contains an offset
+ * take a binary search.
+ *
+ * <p/>
+ *
+ * Sets are created from arbitrary ranges via a {@link Builder}, which sorts
+ * and coalesces them once.
+ */
+public final class RangeSet implements Iterable<ImmutableRange> {
+	public static final RangeSet EMPTY = new RangeSet(new long[0], 0);
+
+	private final long[] spans;
+	private final int length;
+
+	private RangeSet(long[] spans, int size) {
+		this.spans = (spans.length == size ? spans : copy(spans, size));
+		int length = 0;
+		for (long span : this.spans) {
+			length += ImmutableRange.length(span);
+		}
+		this.length = length;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static RangeSet of(Iterable<Range> ranges) {
+		return builder().addAll(ranges).build();
+	}
+
+	public static RangeSet of(Range range) {
+		return builder().add(range).build();
+	}
+
+	/**
+	 * The number of spans.
+	 */
+	public int size() {
+		return spans.length;
+	}
+
+	public boolean isEmpty() {
+		return spans.length == 0;
+	}
+
+	public int getStart(int span) {
+		return ImmutableRange.start(spans[span]);
+	}
+
+	public int getEnd(int span) {
+		return ImmutableRange.end(spans[span]);
+	}
+
+	/**
+	 * The number of offsets covered, i.e. the sum of the lengths of all
+	 * spans.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Tests whether the character at an offset is covered.
+	 */
+	public boolean contains(int offset) {
+		final int span = firstEndingAfter(offset);
+		return (span < spans.length) && (getStart(span) <= offset);
+	}
+
+	public RangeSet union(RangeSet other) {
+		final Spans union = new Spans(spans.length + other.spans.length);
+		for (int a = 0, b = 0; a < spans.length || b < other.spans.length;) {
+			if (b == other.spans.length || (a < spans.length && spans[a] <= other.spans[b])) {
+				union.add(spans[a++]);
+			} else {
+				union.add(other.spans[b++]);
+			}
+		}
+		return union.toRangeSet();
+	}
+
+	public RangeSet intersection(RangeSet other) {
+		final Spans intersection = new Spans(Math.max(spans.length, other.spans.length));
+		for (int a = 0, b = 0; a < spans.length && b < other.spans.length;) {
+			final int aEnd = getEnd(a);
+			final int bEnd = other.getEnd(b);
+			intersection.add(Math.max(getStart(a), other.getStart(b)), Math.min(aEnd, bEnd));
+			if (aEnd <= bEnd) {
+				a++;
+			} else {
+				b++;
+			}
+		}
+		return intersection.toRangeSet();
+	}
+
+	/**
+	 * Yields the offsets covered by this set, but not by another.
+	 */
+	public RangeSet difference(RangeSet other) {
+		final Spans difference = new Spans(spans.length + other.spans.length);
+		for (int a = 0, b = 0; a < spans.length; a++) {
+			final int aEnd = getEnd(a);
+			int current = getStart(a);
+			while (b < other.spans.length && other.getEnd(b) <= current) {
+				b++;
+			}
+			for (; b < other.spans.length && other.getStart(b) < aEnd; b++) {
+				difference.add(current, other.getStart(b));
+				current = other.getEnd(b);
+				if (current >= aEnd) {
+					break;
+				}
+			}
+			difference.add(current, aEnd);
+		}
+		return difference.toRangeSet();
+	}
+
+	/**
+	 * Yields the offsets within a range not covered by this set.
+	 */
+	public RangeSet complement(Range bound) {
+		return complement(bound.getStart(), bound.getEnd());
+	}
+
+	/**
+	 * Yields the offsets between two offsets not covered by this set.
+	 */
+	public RangeSet complement(int start, int end) {
+		final Spans complement = new Spans(16);
+		int current = start;
+		for (int span = firstEndingAfter(start); span < spans.length && getStart(span) < end; span++) {
+			complement.add(current, getStart(span));
+			current = getEnd(span);
+		}
+		complement.add(current, end);
+		return complement.toRangeSet();
+	}
+
+	/**
+	 * An unmodifiable view of the spans.
+	 */
+	public List<ImmutableRange> asList() {
+		return new SpanList();
+	}
+
+	public Iterator<ImmutableRange> iterator() {
+		return asList().iterator();
+	}
+
+	/**
+	 * Copies the spans into a set of mutable ranges.
+	 */
+	public SortedSet<Range> toRanges() {
+		final SortedSet<Range> ranges = Sets.newTreeSet();
+		for (long span : spans) {
+			ranges.add(ImmutableRange.toRange(span));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Copies the packed spans.
+	 */
+	public long[] toPackedArray() {
+		return copy(spans, spans.length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && obj instanceof RangeSet) {
+			return Arrays.equals(spans, ((RangeSet) obj).spans);
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(spans);
+	}
+
+	@Override
+	public String toString() {
+		return asList().toString();
+	}
+
+	/**
+	 * Locates the first span ending after an offset.
+	 */
+	private int firstEndingAfter(int offset) {
+		int low = 0;
+		int high = spans.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (getEnd(mid) > offset) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	private static long[] copy(long[] values, int length) {
+		final long[] copy = new long[length];
+		System.arraycopy(values, 0, copy, 0, Math.min(values.length, length));
+		return copy;
+	}
+
+	/**
+	 * Collects ranges, which may be given in any order, for creating a
+	 * {@link RangeSet}.
+	 */
+	public static class Builder {
+		private long[] ranges = new long[16];
+		private int size = 0;
+
+		private Builder() {
+		}
+
+		public Builder add(int start, int end) {
+			if (start < 0 || end < 0 || start > end) {
+				throw new IllegalArgumentException(Range.toString(start, end));
+			}
+			if (size == ranges.length) {
+				ranges = copy(ranges, size * 2);
+			}
+			ranges[size++] = ImmutableRange.pack(start, end);
+			return this;
+		}
+
+		public Builder add(Range range) {
+			return add(range.getStart(), range.getEnd());
+		}
+
+		public Builder add(ImmutableRange range) {
+			return add(range.getStart(), range.getEnd());
+		}
+
+		public Builder addAll(Iterable<Range> ranges) {
+			for (Range range : ranges) {
+				add(range);
+			}
+			return this;
+		}
+
+		public Builder addAll(RangeSet set) {
+			for (long span : set.spans) {
+				add(ImmutableRange.start(span), ImmutableRange.end(span));
+			}
+			return this;
+		}
+
+		/**
+		 * Removes all collected ranges.
+		 */
+		public Builder clear() {
+			size = 0;
+			return this;
+		}
+
+		/**
+		 * Creates a set of the ranges collected so far, coalescing
+		 * overlapping and adjacent ones.
+		 */
+		public RangeSet build() {
+			final long[] sorted = copy(ranges, size);
+			Arrays.sort(sorted);
+			final Spans spans = new Spans(size);
+			for (long range : sorted) {
+				spans.add(range);
+			}
+			return spans.toRangeSet();
+		}
+	}
+
+	/**
+	 * Appends ranges in order of their start offsets, coalescing them into
+	 * spans.
+	 */
+	private static class Spans {
+		private long[] spans;
+		private int size = 0;
+
+		private Spans(int capacity) {
+			this.spans = new long[Math.max(capacity, 1)];
+		}
+
+		private void add(long range) {
+			add(ImmutableRange.start(range), ImmutableRange.end(range));
+		}
+
+		private void add(int start, int end) {
+			if (start >= end) {
+				return;
+			}
+			if (size > 0) {
+				final long last = spans[size - 1];
+				if (start <= ImmutableRange.end(last)) {
+					if (end > ImmutableRange.end(last)) {
+						spans[size - 1] = ImmutableRange.pack(ImmutableRange.start(last), end);
+					}
+					return;
+				}
+			}
+			if (size == spans.length) {
+				spans = copy(spans, size * 2);
+			}
+			spans[size++] = ImmutableRange.pack(start, end);
+		}
+
+		private RangeSet toRangeSet() {
+			return (size == 0 ? EMPTY : new RangeSet(spans, size));
+		}
+	}
+
+	private class SpanList extends AbstractList<ImmutableRange> implements RandomAccess {
+
+		@Override
+		public ImmutableRange get(int index) {
+			return ImmutableRange.unpack(spans[index]);
+		}
+
+		@Override
+		public int size() {
+			return spans.length;
+		}
+	}
+}
@@ -3,9 +3,9 @@ package org.lmnl;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.SortedSet;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
@@ -26,6 +26,11 @@ public class Ranges {
 
 	public static final Ordering<Range> NATURAL_ORDERING = Ordering.natural();
 
+	/**
+	 * @deprecated use {@link RangeSet#of(Iterable)}, which also merges
+	 *             overlapping ranges
+	 */
+	@Deprecated
 	public static SortedSet<Range> compressAdjacent(SortedSet<Range> ranges) {
 		final SortedSet<Range> compressed = Sets.newTreeSet();
 
@@ -50,6 +55,11 @@ public class Ranges {
 		return compressed;
 	}
 
+	/**
+	 * @deprecated use {@link RangeSet#length()}, which counts offsets covered
+	 *             by overlapping ranges once
+	 */
+	@Deprecated
 	public static int length(SortedSet<Range> ranges) {
 		int length = 0;
 		for (Range r : ranges) {
@@ -58,27 +68,20 @@ public class Ranges {
 		return length;
 	}
 
+	/**
+	 * Removes excluded segments from ranges.
+	 * 
+	 * @return the remainders of the ranges, sorted by start offset
+	 * @see RangeSet#complement(Range)
+	 */
 	public static List<Range> exclude(Iterable<Range> ranges, List<Range> excluded) {
-		excluded = START_ORDERING.sortedCopy(excluded);
-		
-		final List<Range> result = START_ORDERING.sortedCopy(ranges);
-		for (ListIterator<Range> it = result.listIterator(); it.hasNext();) {
-			final Range r = it.next();
-                        it.remove();
-
-			for (Iterator<Range> exIt = excluded.iterator(); exIt.hasNext();) {
-				final Range ex = exIt.next();
-				if (ex.precedes(r)) {
-					exIt.remove();
-				} else if (r.precedes(ex)) {
-					continue;
-				}
-				for (Range remainder : r.substract(ex)) {
-					it.add(remainder);
-				}
-
+		final RangeSet excludedSet = RangeSet.of(excluded);
+		final List<Range> result = Lists.newArrayList();
+		for (Range range : ranges) {
+			for (ImmutableRange remainder : excludedSet.complement(range)) {
+				result.add(remainder.toRange());
 			}
 		}
-		return result;
+		return START_ORDERING.sortedCopy(result);
 	}
 }
@@ -0,0 +1,105 @@
+package org.lmnl.event;
+
+import java.util.NoSuchElementException;
+
+import org.lmnl.Annotation;
+
+/**
+ * A binary min-heap of open range annotations keyed by their end offsets.
+ * 
+ * <p/>
+ * 
+ * Annotations ending at the same offset are removed in the order they have
+ * been added. End offset and insertion sequence are packed into a single
+ * primitive key, so adding and removing annotations does not allocate once the
+ * heap has grown to the maximum number of open annotations.
+ */
+class EndOffsetHeap {
+	private long[] keys;
+	private Annotation[] annotations;
+	private int size = 0;
+	private int sequence = 0;
+
+	EndOffsetHeap(int initialCapacity) {
+		this.keys = new long[Math.max(1, initialCapacity)];
+		this.annotations = new Annotation[keys.length];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int minEnd() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return (int) (keys[0] >>> 32);
+	}
+
+	void add(int end, Annotation annotation) {
+		if (size == keys.length) {
+			grow();
+		}
+		final long key = ((long) end << 32) | (sequence++ & 0xffffffffL);
+
+		int child = size++;
+		while (child > 0) {
+			final int parent = (child - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[child] = keys[parent];
+			annotations[child] = annotations[parent];
+			child = parent;
+		}
+		keys[child] = key;
+		annotations[child] = annotation;
+	}
+
+	Annotation removeMin() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		final Annotation min = annotations[0];
+
+		final int last = --size;
+		final long key = keys[last];
+		final Annotation annotation = annotations[last];
+		annotations[last] = null;
+
+		if (last > 0) {
+			int parent = 0;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= last) {
+					break;
+				}
+				if (child + 1 < last && keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if (key <= keys[child]) {
+					break;
+				}
+				keys[parent] = keys[child];
+				annotations[parent] = annotations[child];
+				parent = child;
+			}
+			keys[parent] = key;
+			annotations[parent] = annotation;
+		}
+		if (size == 0) {
+			sequence = 0;
+		}
+		return min;
+	}
+
+	private void grow() {
+		final long[] grownKeys = new long[keys.length * 2];
+		System.arraycopy(keys, 0, grownKeys, 0, size);
+		keys = grownKeys;
+
+		final Annotation[] grownAnnotations = new Annotation[grownKeys.length];
+		System.arraycopy(annotations, 0, grownAnnotations, 0, size);
+		annotations = grownAnnotations;
+	}
+}
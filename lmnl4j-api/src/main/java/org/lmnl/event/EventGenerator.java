@@ -1,9 +1,5 @@
 package org.lmnl.event;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.SortedMap;
-
 import org.lmnl.AnnotationRepository;
 import org.lmnl.Annotation;
 import org.lmnl.Range;
@@ -11,8 +7,6 @@ import org.lmnl.Range;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.lmnl.Text;
 
 public class EventGenerator {
@@ -31,21 +25,27 @@ public class EventGenerator {
 	}
 
 	public void generate(Text text, EventHandler eventHandler) throws EventHandlerException {
-		final SortedMap<Integer, List<Annotation>> opened = Maps.newTreeMap();
-		for (Annotation annotation : Iterables.filter(annotationRepository.find(text), filter)) {
+		generate(annotationRepository.find(text, null, null, true, true), eventHandler);
+	}
+
+	/**
+	 * Generates events for the given annotations.
+	 * 
+	 * @param annotations
+	 *                the annotations in document order, i.e. ordered by
+	 *                their start offsets with enclosing annotations first
+	 * @param eventHandler
+	 *                the handler receiving the events
+	 */
+	public void generate(Iterable<Annotation> annotations, EventHandler eventHandler) throws EventHandlerException {
+		final EndOffsetHeap opened = new EndOffsetHeap(64);
+		for (Annotation annotation : Iterables.filter(annotations, filter)) {
 			final Range annotationRange = annotation.getRange();
 			final int start = annotationRange.getStart();
 			final int end = annotationRange.getEnd();
 
-			for (Iterator<Integer> endingAtIt = opened.keySet().iterator(); endingAtIt.hasNext();) {
-				final Integer endingAt = endingAtIt.next();
-				if (endingAt > start) {
-					break;
-				}
-				for (Annotation ending : opened.get(endingAt)) {
-					eventHandler.endAnnotation(ending);
-				}
-				endingAtIt.remove();
+			while (!opened.isEmpty() && opened.minEnd() <= start) {
+				eventHandler.endAnnotation(opened.removeMin());
 			}
 
 			eventHandler.startAnnotation(annotation);
@@ -53,17 +53,11 @@ public class EventGenerator {
 			if (start == end) {
 				eventHandler.endAnnotation(annotation);
 			} else {
-				List<Annotation> endingAnnotations = opened.get(end);
-				if (endingAnnotations == null) {
-					opened.put(end, endingAnnotations = Lists.newArrayList());
-				}
-				endingAnnotations.add(annotation);
+				opened.add(end, annotation);
 			}
 		}
-		for (List<Annotation> remaining : opened.values()) {
-			for (Annotation annotation : remaining) {
-				eventHandler.endAnnotation(annotation);
-			}
+		while (!opened.isEmpty()) {
+			eventHandler.endAnnotation(opened.removeMin());
 		}
 	}
 }
@@ -0,0 +1,375 @@
+package org.lmnl.memory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.lmnl.Annotation;
+import org.lmnl.Range;
+import org.lmnl.RangeFilter;
+import org.lmnl.util.IntervalIndex;
+import org.lmnl.xml.NodePath;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The annotations of one text, stored column-wise.
+ *
+ * <p/>
+ *
+ * Offsets, name identifiers and insertion identifiers are kept in parallel
+ * primitive arrays, data and node paths in separate object columns. Rows are
+ * sorted lazily before queries, by start offset ascending and end offset
+ * descending, i.e. in document order, so the annotations starting within a
+ * range are located by binary search. Overlap queries are answered by an
+ * {@link IntervalIndex} over the sorted rows, which is rebuilt on demand after
+ * insertions.
+ * Annotations with node paths are indexed by a permutation of the rows sorted
+ * by path, which is rebuilt on demand after insertions.
+ */
+class AnnotationColumns {
+	private final NameTable names;
+
+	private int[] ids = new int[16];
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int[] nameIds = new int[16];
+	private Object[] data = new Object[16];
+	private byte[][] nodePaths = new byte[16][];
+	private int size = 0;
+
+	private int nextId = 1;
+	private boolean sorted = true;
+	private IntervalIndex intervals = null;
+	private int[] pathOrder = null;
+
+	AnnotationColumns(NameTable names) {
+		this.names = names;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	synchronized ColumnAnnotation add(int nameId, Range range, Object annotationData, byte[] nodePath) {
+		if (size == ids.length) {
+			final int capacity = size * 2;
+			ids = copy(ids, capacity);
+			starts = copy(starts, capacity);
+			ends = copy(ends, capacity);
+			nameIds = copy(nameIds, capacity);
+			final Object[] newData = new Object[capacity];
+			System.arraycopy(data, 0, newData, 0, size);
+			data = newData;
+			final byte[][] newNodePaths = new byte[capacity][];
+			System.arraycopy(nodePaths, 0, newNodePaths, 0, size);
+			nodePaths = newNodePaths;
+		}
+		final int start = range.getStart();
+		final int end = range.getEnd();
+		if (size > 0 && sorted && compare(size - 1, start, end) > 0) {
+			sorted = false;
+		}
+		ids[size] = nextId++;
+		starts[size] = start;
+		ends[size] = end;
+		nameIds[size] = nameId;
+		data[size] = annotationData;
+		nodePaths[size] = nodePath;
+		size++;
+
+		intervals = null;
+		pathOrder = null;
+		return annotation(size - 1);
+	}
+
+	/**
+	 * Finds annotations by name and range.
+	 *
+	 * @param nameFilter
+	 *                flags indexed by name identifier; <code>null</code> for
+	 *                all names
+	 * @param rangeFilter
+	 *                the ranges to match; <code>null</code> for all ranges
+	 * @param documentOrder
+	 *                whether to order by end offset descending or ascending
+	 *                within equal start offsets
+	 */
+	synchronized List<Annotation> find(boolean[] nameFilter, RangeFilter rangeFilter, boolean documentOrder) {
+		sort();
+
+		int[] matches = new int[16];
+		int matchCount = 0;
+		if (rangeFilter == null) {
+			for (int rc = 0; rc < size; rc++) {
+				if (nameFilter == null || (nameIds[rc] < nameFilter.length && nameFilter[nameIds[rc]])) {
+					matches = add(matches, matchCount++, rc);
+				}
+			}
+		} else if (rangeFilter.isOverlapping()) {
+			final IntervalIndex intervals = intervals();
+			for (int sc = 0; sc < rangeFilter.size(); sc++) {
+				for (int rc : intervals.overlapping(rangeFilter.getStart(sc), rangeFilter.getEnd(sc))) {
+					if (nameFilter != null && (nameIds[rc] >= nameFilter.length || !nameFilter[nameIds[rc]])) {
+						continue;
+					}
+					if (rangeFilter.matches(starts[rc], ends[rc])) {
+						matches = add(matches, matchCount++, rc);
+					}
+				}
+			}
+			if (rangeFilter.size() > 1) {
+				// annotations overlapping with several spans are found repeatedly
+				Arrays.sort(matches, 0, matchCount);
+				int distinct = 0;
+				for (int mc = 0; mc < matchCount; mc++) {
+					if (distinct == 0 || matches[distinct - 1] != matches[mc]) {
+						matches[distinct++] = matches[mc];
+					}
+				}
+				matchCount = distinct;
+			}
+		} else {
+			int next = 0;
+			for (int sc = 0; sc < rangeFilter.size(); sc++) {
+				final int low = firstStartingAt(rangeFilter.getStart(sc));
+				final int high = firstStartingAt(rangeFilter.getEnd(sc) + 1);
+				for (int rc = Math.max(low, next); rc < high; rc++) {
+					if (nameFilter != null && (nameIds[rc] >= nameFilter.length || !nameFilter[nameIds[rc]])) {
+						continue;
+					}
+					if (rangeFilter.matches(starts[rc], ends[rc])) {
+						matches = add(matches, matchCount++, rc);
+					}
+				}
+				next = Math.max(next, high);
+			}
+		}
+
+		if (!documentOrder) {
+			// reverse runs of annotations with equal start offsets
+			for (int run = 0; run < matchCount;) {
+				int runEnd = run + 1;
+				while (runEnd < matchCount && starts[matches[runEnd]] == starts[matches[run]]) {
+					runEnd++;
+				}
+				for (int left = run, right = runEnd - 1; left < right; left++, right--) {
+					final int swap = matches[left];
+					matches[left] = matches[right];
+					matches[right] = swap;
+				}
+				run = runEnd;
+			}
+		}
+
+		final List<Annotation> result = Lists.newArrayListWithCapacity(matchCount);
+		for (int mc = 0; mc < matchCount; mc++) {
+			result.add(annotation(matches[mc]));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds annotations by their node paths.
+	 *
+	 * @param keys
+	 *                the node paths to find
+	 */
+	synchronized List<Annotation> findNodes(byte[][] keys) {
+		final int[] pathOrder = pathOrder();
+		final List<Annotation> result = Lists.newArrayList();
+		for (byte[] key : keys) {
+			for (int pc = firstPathFrom(pathOrder, key); pc < pathOrder.length; pc++) {
+				if (NodePath.compare(nodePaths[pathOrder[pc]], key) != 0) {
+					break;
+				}
+				result.add(annotation(pathOrder[pc]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds annotations with node paths between two keys, in document order.
+	 *
+	 * @param from
+	 *                the lower bound, exclusive
+	 * @param to
+	 *                the upper bound, exclusive
+	 * @param depth
+	 *                the depth of the nodes to find; <code>-1</code> for any
+	 *                depth
+	 * @param excluded
+	 *                the node path to exclude; may be <code>null</code>
+	 */
+	synchronized List<Annotation> findNodes(byte[] from, byte[] to, int depth, byte[] excluded) {
+		final int[] pathOrder = pathOrder();
+		final List<Annotation> result = Lists.newArrayList();
+		for (int pc = firstPathFrom(pathOrder, from); pc < pathOrder.length; pc++) {
+			final byte[] nodePath = nodePaths[pathOrder[pc]];
+			final int toComparison = NodePath.compare(nodePath, to);
+			if (toComparison >= 0) {
+				break;
+			}
+			if (NodePath.compare(nodePath, from) == 0) {
+				continue;
+			}
+			if (depth >= 0 && NodePath.depth(nodePath) != depth) {
+				continue;
+			}
+			if (excluded != null && NodePath.compare(nodePath, excluded) == 0) {
+				continue;
+			}
+			result.add(annotation(pathOrder[pc]));
+		}
+		return result;
+	}
+
+	private ColumnAnnotation annotation(int row) {
+		return new ColumnAnnotation(this, ids[row], names.get(nameIds[row]), new Range(starts[row], ends[row]),
+				data[row], nodePaths[row]);
+	}
+
+	/**
+	 * Locates the first row starting at or after an offset.
+	 */
+	private int firstStartingAt(int offset) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (starts[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Locates the first position in the path order with a node path equal to
+	 * or greater than a key.
+	 */
+	private int firstPathFrom(int[] pathOrder, byte[] key) {
+		int low = 0;
+		int high = pathOrder.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (NodePath.compare(nodePaths[pathOrder[mid]], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private IntervalIndex intervals() {
+		if (intervals == null) {
+			intervals = new IntervalIndex(starts, ends, size);
+		}
+		return intervals;
+	}
+
+	private int[] pathOrder() {
+		sort();
+		if (pathOrder == null) {
+			int count = 0;
+			for (int rc = 0; rc < size; rc++) {
+				if (nodePaths[rc] != null) {
+					count++;
+				}
+			}
+			final int[] order = new int[count];
+			for (int rc = 0, pc = 0; rc < size; rc++) {
+				if (nodePaths[rc] != null) {
+					order[pc++] = rc;
+				}
+			}
+			mergeSort(order, new int[count], 0, count, true);
+			pathOrder = order;
+		}
+		return pathOrder;
+	}
+
+	/**
+	 * Sorts the rows in document order, keeping rows with equal ranges in
+	 * insertion order.
+	 */
+	private void sort() {
+		if (sorted) {
+			return;
+		}
+		final int[] order = new int[size];
+		for (int rc = 0; rc < size; rc++) {
+			order[rc] = rc;
+		}
+		mergeSort(order, new int[size], 0, size, false);
+
+		final int[] sortedIds = new int[ids.length];
+		final int[] sortedStarts = new int[ids.length];
+		final int[] sortedEnds = new int[ids.length];
+		final int[] sortedNameIds = new int[ids.length];
+		final Object[] sortedData = new Object[ids.length];
+		final byte[][] sortedNodePaths = new byte[ids.length][];
+		for (int rc = 0; rc < size; rc++) {
+			final int row = order[rc];
+			sortedIds[rc] = ids[row];
+			sortedStarts[rc] = starts[row];
+			sortedEnds[rc] = ends[row];
+			sortedNameIds[rc] = nameIds[row];
+			sortedData[rc] = data[row];
+			sortedNodePaths[rc] = nodePaths[row];
+		}
+		ids = sortedIds;
+		starts = sortedStarts;
+		ends = sortedEnds;
+		nameIds = sortedNameIds;
+		data = sortedData;
+		nodePaths = sortedNodePaths;
+
+		sorted = true;
+		intervals = null;
+		pathOrder = null;
+	}
+
+	private void mergeSort(int[] rows, int[] buf, int from, int to, boolean byPath) {
+		if (to - from < 2) {
+			return;
+		}
+		final int mid = (from + to) >>> 1;
+		mergeSort(rows, buf, from, mid, byPath);
+		mergeSort(rows, buf, mid, to, byPath);
+
+		System.arraycopy(rows, from, buf, from, to - from);
+		for (int left = from, right = mid, rc = from; rc < to; rc++) {
+			if (right >= to || (left < mid && compare(buf[left], buf[right], byPath) <= 0)) {
+				rows[rc] = buf[left++];
+			} else {
+				rows[rc] = buf[right++];
+			}
+		}
+	}
+
+	private int compare(int a, int b, boolean byPath) {
+		return (byPath ? NodePath.compare(nodePaths[a], nodePaths[b]) : compare(a, starts[b], ends[b]));
+	}
+
+	private int compare(int row, int start, int end) {
+		return (starts[row] == start ? end - ends[row] : starts[row] - start);
+	}
+
+	private static int[] add(int[] values, int index, int value) {
+		if (index == values.length) {
+			values = copy(values, index * 2);
+		}
+		values[index] = value;
+		return values;
+	}
+
+	private static int[] copy(int[] values, int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(values, 0, copy, 0, Math.min(values.length, length));
+		return copy;
+	}
+}
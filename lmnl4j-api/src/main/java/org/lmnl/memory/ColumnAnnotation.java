@@ -0,0 +1,81 @@
+package org.lmnl.memory;
+
+import org.lmnl.Annotation;
+import org.lmnl.QName;
+import org.lmnl.Range;
+
+import com.google.common.base.Objects;
+
+/**
+ * An annotation materialized from the columns of a
+ * {@link MemoryAnnotationRepository}.
+ * 
+ * <p/>
+ * 
+ * Annotations are identified by the text they belong to and an identifier
+ * assigned on insertion; their properties are copies of the column values,
+ * so changing their range does not affect the repository.
+ */
+public class ColumnAnnotation implements Annotation {
+	private final AnnotationColumns columns;
+	private final int id;
+	private final QName name;
+	private final Range range;
+	private final Object data;
+	private final byte[] nodePath;
+
+	ColumnAnnotation(AnnotationColumns columns, int id, QName name, Range range, Object data, byte[] nodePath) {
+		this.columns = columns;
+		this.id = id;
+		this.name = name;
+		this.range = range;
+		this.data = data;
+		this.nodePath = nodePath;
+	}
+
+	AnnotationColumns getColumns() {
+		return columns;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public QName getName() {
+		return name;
+	}
+
+	public Range getRange() {
+		return range;
+	}
+
+	public Object getData() {
+		return data;
+	}
+
+	/**
+	 * @see org.lmnl.xml.NodePath
+	 */
+	public byte[] getNodePath() {
+		return nodePath;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && obj instanceof ColumnAnnotation) {
+			final ColumnAnnotation other = (ColumnAnnotation) obj;
+			return columns == other.columns && id == other.id;
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).addValue(getName()).addValue(getRange()).toString();
+	}
+}
@@ -0,0 +1,157 @@
+package org.lmnl.memory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.lmnl.AbstractAnnotationRepository;
+import org.lmnl.Annotation;
+import org.lmnl.QName;
+import org.lmnl.Range;
+import org.lmnl.RangeFilter;
+import org.lmnl.Text;
+import org.lmnl.xml.NodePath;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Holds annotations on the heap, stored column-wise per text.
+ * 
+ * <p/>
+ * 
+ * Names are interned into integer identifiers shared by all texts; start and
+ * end offsets, name identifiers, data and XML node paths of the annotations
+ * of a text are kept in separate columns. Queries by range locate matching
+ * annotations via binary search over the sorted start offsets, queries by
+ * node path via binary search over the node paths. Found annotations are
+ * materialized on every query.
+ * 
+ * <p/>
+ * 
+ * The repository is safe for concurrent use.
+ */
+public class MemoryAnnotationRepository extends AbstractAnnotationRepository {
+	private final NameTable names = new NameTable();
+	private final ConcurrentMap<Text, AnnotationColumns> texts = new ConcurrentHashMap<Text, AnnotationColumns>();
+
+	/**
+	 * Adds an annotation.
+	 * 
+	 * @param text
+	 *                the annotated text
+	 * @param name
+	 *                the name of the annotation
+	 * @param range
+	 *                its range
+	 * @param data
+	 *                its data; may be <code>null</code>
+	 * @return the added annotation
+	 */
+	public ColumnAnnotation add(Text text, QName name, Range range, Object data) {
+		return add(text, name, range, data, null);
+	}
+
+	/**
+	 * Adds an annotation parsed from an XML node.
+	 * 
+	 * @param nodePath
+	 *                the {@link NodePath encoded} path of the node; may be
+	 *                <code>null</code>
+	 * @see #add(Text, QName, Range, Object)
+	 */
+	public ColumnAnnotation add(Text text, QName name, Range range, Object data, byte[] nodePath) {
+		return columns(text, true).add(names.id(name), range, data, nodePath);
+	}
+
+	/**
+	 * Removes all annotations of a text.
+	 */
+	public void remove(Text text) {
+		texts.remove(text);
+	}
+
+	/**
+	 * The number of annotations of a text.
+	 */
+	public int size(Text text) {
+		final AnnotationColumns columns = columns(text, false);
+		return (columns == null ? 0 : columns.size());
+	}
+
+	public Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping,
+			boolean documentOrder) {
+		final AnnotationColumns columns = columns(text, false);
+		if (columns == null) {
+			return Collections.emptyList();
+		}
+
+		boolean[] nameFilter = null;
+		if (names != null && !names.isEmpty()) {
+			nameFilter = new boolean[this.names.size()];
+			for (QName name : names) {
+				final int id = this.names.find(name);
+				if (id >= 0 && id < nameFilter.length) {
+					nameFilter[id] = true;
+				}
+			}
+		}
+
+		final RangeFilter rangeFilter = (ranges == null || ranges.isEmpty() ? null : new RangeFilter(ranges,
+				overlapping));
+		return columns.find(nameFilter, rangeFilter, documentOrder);
+	}
+
+	public Iterable<Annotation> findAncestors(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null) {
+			return Collections.emptyList();
+		}
+		return ((ColumnAnnotation) annotation).getColumns().findNodes(NodePath.ancestors(nodePath));
+	}
+
+	public Iterable<Annotation> findDescendants(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null) {
+			return Collections.emptyList();
+		}
+		return ((ColumnAnnotation) annotation).getColumns().findNodes(nodePath, NodePath.upperBound(nodePath), -1,
+				null);
+	}
+
+	public Iterable<Annotation> findChildren(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null) {
+			return Collections.emptyList();
+		}
+		return ((ColumnAnnotation) annotation).getColumns().findNodes(nodePath, NodePath.upperBound(nodePath),
+				NodePath.depth(nodePath) + 1, null);
+	}
+
+	public Iterable<Annotation> findSiblings(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null || nodePath.length == 0) {
+			return Collections.emptyList();
+		}
+		final byte[] parentPath = NodePath.parent(nodePath);
+		return ((ColumnAnnotation) annotation).getColumns().findNodes(parentPath, NodePath.upperBound(parentPath),
+				NodePath.depth(nodePath), nodePath);
+	}
+
+	private byte[] nodePath(Annotation annotation) {
+		Preconditions.checkArgument(annotation instanceof ColumnAnnotation, annotation.getClass().toString());
+		return ((ColumnAnnotation) annotation).getNodePath();
+	}
+
+	private AnnotationColumns columns(Text text, boolean create) {
+		AnnotationColumns columns = texts.get(text);
+		if (columns == null && create) {
+			final AnnotationColumns created = new AnnotationColumns(names);
+			columns = texts.putIfAbsent(text, created);
+			if (columns == null) {
+				columns = created;
+			}
+		}
+		return columns;
+	}
+}
@@ -0,0 +1,28 @@
+package org.lmnl.memory;
+
+import org.lmnl.Text;
+
+import com.google.common.base.Objects;
+
+/**
+ * A text held on the heap.
+ * 
+ * @see MemoryTextRepository#newText()
+ */
+public class MemoryText implements Text {
+	private final int id;
+	volatile String content = "";
+
+	MemoryText(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("id", Integer.toString(id)).toString();
+	}
+}
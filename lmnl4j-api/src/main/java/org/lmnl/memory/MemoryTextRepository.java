@@ -0,0 +1,69 @@
+package org.lmnl.memory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lmnl.Range;
+import org.lmnl.Text;
+import org.lmnl.TextContentReader;
+import org.lmnl.TextRepository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Holds the contents of {@link MemoryText texts} on the heap.
+ */
+public class MemoryTextRepository implements TextRepository {
+	private final AtomicInteger ids = new AtomicInteger();
+
+	public MemoryText newText() {
+		return new MemoryText(ids.incrementAndGet());
+	}
+
+	public int length(Text text) throws IOException {
+		return content(text).length();
+	}
+
+	public void read(Text text, TextContentReader reader) throws IOException {
+		final String content = content(text);
+		reader.read(new StringReader(content), content.length());
+	}
+
+	public String read(Text text, Range range) throws IOException {
+		return substring(content(text), range);
+	}
+
+	public SortedMap<Range, String> bulkRead(Text text, SortedSet<Range> ranges) throws IOException {
+		final String content = content(text);
+		final SortedMap<Range, String> results = Maps.newTreeMap();
+		for (Range range : ranges) {
+			results.put(range, substring(content, range));
+		}
+		return results;
+	}
+
+	public void write(Text text, Reader contents, int contentLength) throws IOException {
+		Preconditions.checkArgument(text instanceof MemoryText, text.getClass().toString());
+		final StringBuilder content = new StringBuilder(Math.max(0, contentLength));
+		final char[] buf = new char[8192];
+		for (int read; (read = contents.read(buf)) >= 0;) {
+			content.append(buf, 0, read);
+		}
+		((MemoryText) text).content = content.toString();
+	}
+
+	private static String content(Text text) {
+		Preconditions.checkArgument(text instanceof MemoryText, text.getClass().toString());
+		return ((MemoryText) text).content;
+	}
+
+	private static String substring(String content, Range range) {
+		final int length = content.length();
+		return content.substring(Math.min(range.getStart(), length), Math.min(range.getEnd(), length));
+	}
+}
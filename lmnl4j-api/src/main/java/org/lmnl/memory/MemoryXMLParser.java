@@ -0,0 +1,75 @@
+package org.lmnl.memory;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.lmnl.Annotation;
+import org.lmnl.QName;
+import org.lmnl.Range;
+import org.lmnl.xml.NodePath;
+import org.lmnl.xml.XMLParser;
+
+/**
+ * Parses XML into a {@link MemoryAnnotationRepository}.
+ * 
+ * <p/>
+ * 
+ * Annotations are added to the repository as soon as their XML node has
+ * been parsed completely; texts have to be held by a
+ * {@link MemoryTextRepository}.
+ */
+public class MemoryXMLParser extends XMLParser {
+	private MemoryAnnotationRepository annotationRepository;
+
+	public void setAnnotationRepository(MemoryAnnotationRepository annotationRepository) {
+		this.annotationRepository = annotationRepository;
+	}
+
+	@Override
+	protected Annotation startAnnotation(Session session, QName name, Attributes attributes, int start,
+			Iterable<Integer> nodePath) {
+		final Map<QName, String> attrs = (attributes.isEmpty() ? Collections.<QName, String> emptyMap() : attributes
+				.toMap());
+		return new OpenAnnotation(name, start, attrs, NodePath.encode(nodePath));
+	}
+
+	@Override
+	protected void endAnnotation(Session session, Annotation annotation, int end) {
+		final OpenAnnotation open = (OpenAnnotation) annotation;
+		annotationRepository.add(session.target, open.name, new Range(open.start, end), open.data, open.nodePath);
+	}
+
+	@Override
+	protected void newOffsetDelta(Session session, Range textRange, Range sourceRange) {
+		annotationRepository.add(session.target, OFFSET_DELTA_NAME, textRange, sourceRange);
+	}
+
+	/**
+	 * An annotation whose XML node has not been parsed completely yet.
+	 */
+	private static class OpenAnnotation implements Annotation {
+		private final QName name;
+		private final int start;
+		private final Object data;
+		private final byte[] nodePath;
+
+		private OpenAnnotation(QName name, int start, Object data, byte[] nodePath) {
+			this.name = name;
+			this.start = start;
+			this.data = data;
+			this.nodePath = nodePath;
+		}
+
+		public QName getName() {
+			return name;
+		}
+
+		public Range getRange() {
+			return new Range(start, start);
+		}
+
+		public Object getData() {
+			return data;
+		}
+	}
+}
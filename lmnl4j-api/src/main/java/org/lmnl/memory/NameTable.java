@@ -0,0 +1,48 @@
+package org.lmnl.memory;
+
+import java.util.List;
+import java.util.Map;
+
+import org.lmnl.QName;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Assigns consecutive integer identifiers to names.
+ */
+class NameTable {
+	private final Map<QName, Integer> ids = Maps.newHashMap();
+	private final List<QName> names = Lists.newArrayList();
+
+	/**
+	 * Determines the identifier of a name, assigning a new one to unknown
+	 * names.
+	 */
+	synchronized int id(QName name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			ids.put(name, id = names.size());
+			names.add(name);
+		}
+		return id;
+	}
+
+	/**
+	 * Determines the identifier of a name.
+	 * 
+	 * @return the identifier or <code>-1</code> for unknown names
+	 */
+	synchronized int find(QName name) {
+		final Integer id = ids.get(name);
+		return (id == null ? -1 : id);
+	}
+
+	synchronized QName get(int id) {
+		return names.get(id);
+	}
+
+	synchronized int size() {
+		return names.size();
+	}
+}
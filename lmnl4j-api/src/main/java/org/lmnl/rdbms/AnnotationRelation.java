@@ -26,6 +26,7 @@ import java.io.Serializable;
 import org.lmnl.Annotation;
 import org.lmnl.QName;
 import org.lmnl.Range;
+import org.lmnl.xml.NodePath;
 
 import com.google.common.base.Objects;
 
@@ -35,6 +36,8 @@ public class AnnotationRelation implements Annotation {
 	protected TextRelation text;
 	protected Range range;
 	protected Serializable serializableData;
+	protected byte[] nodePath;
+	protected int nodeDepth;
 
 	public AnnotationRelation() {
 	}
@@ -83,6 +86,30 @@ public class AnnotationRelation implements Annotation {
 		this.serializableData = serializableData;
 	}
 
+	/**
+	 * The {@link NodePath encoded} path of the XML node this annotation has
+	 * been parsed from.
+	 * 
+	 * @return the node path or <code>null</code>, if the annotation does not
+	 *         stem from an XML node
+	 */
+	public byte[] getNodePath() {
+		return nodePath;
+	}
+
+	public void setNodePath(byte[] nodePath) {
+		this.nodePath = nodePath;
+		this.nodeDepth = (nodePath == null ? 0 : NodePath.depth(nodePath));
+	}
+
+	public int getNodeDepth() {
+		return nodeDepth;
+	}
+
+	public void setNodeDepth(int nodeDepth) {
+		this.nodeDepth = nodeDepth;
+	}
+
 	@Override
 	public String toString() {
 		return Objects.toStringHelper(this).addValue(getName()).addValue(getRange()).toString();
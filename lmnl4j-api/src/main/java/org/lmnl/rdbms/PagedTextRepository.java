@@ -0,0 +1,340 @@
+package org.lmnl.rdbms;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+import org.lmnl.Range;
+import org.lmnl.Ranges;
+import org.lmnl.Text;
+import org.lmnl.TextContentReader;
+import org.lmnl.TextRepository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+
+/**
+ * Stores texts in pages of a fixed number of characters.
+ *
+ * <p/>
+ *
+ * Pages are rows of a separate relation, keyed by text and page number; the
+ * length of each text is kept alongside the text itself. Reading a range
+ * thus fetches only the pages it touches, and the length of a text is
+ * available without accessing its contents. Writing a text replaces all its
+ * pages.
+ *
+ * <p/>
+ *
+ * The page relation has to provide a character column holding at least
+ * {@link #setPageSize(int) page size} characters per row.
+ */
+public class PagedTextRepository implements TextRepository {
+
+	private SessionFactory sessionFactory;
+	private String textRelation = "lmnl_text";
+	private String lengthColumn = "content_length";
+	private String pageRelation = "lmnl_text_page";
+	private int pageSize = 65536;
+
+	public void setSessionFactory(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	public void setTextRelation(String textRelation) {
+		this.textRelation = textRelation;
+	}
+
+	public void setLengthColumn(String lengthColumn) {
+		this.lengthColumn = lengthColumn;
+	}
+
+	public void setPageRelation(String pageRelation) {
+		this.pageRelation = pageRelation;
+	}
+
+	/**
+	 * Sets the number of characters per page.
+	 *
+	 * <p/>
+	 *
+	 * Texts have to be read with the page size they have been written with.
+	 *
+	 * @param pageSize
+	 *                the page size; defaults to 64K characters
+	 */
+	public void setPageSize(int pageSize) {
+		Preconditions.checkArgument(pageSize > 0);
+		this.pageSize = pageSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public int length(final Text text) throws IOException {
+		final int[] length = new int[1];
+		sessionFactory.getCurrentSession().doWork(new Work() {
+
+			public void execute(Connection connection) throws SQLException {
+				final PreparedStatement lengthStmt = connection.prepareStatement("SELECT " + lengthColumn + " FROM "
+						+ textRelation + " WHERE id = ?");
+				try {
+					lengthStmt.setInt(1, id(text));
+					final ResultSet resultSet = lengthStmt.executeQuery();
+					try {
+						if (resultSet.next()) {
+							length[0] = resultSet.getInt(1);
+						}
+					} finally {
+						resultSet.close();
+					}
+				} finally {
+					lengthStmt.close();
+				}
+			}
+		});
+		return length[0];
+	}
+
+	public void read(final Text text, final TextContentReader reader) throws IOException {
+		final int length = length(text);
+		sessionFactory.getCurrentSession().doWork(new PageRetrieval(text, 0, Integer.MAX_VALUE) {
+
+			@Override
+			protected void retrieve(ResultSet pages) throws SQLException, IOException {
+				reader.read(new PageReader(pages), length);
+			}
+		});
+	}
+
+	public String read(Text text, Range range) throws IOException {
+		final StringBuilder content = new StringBuilder(range.length());
+		sessionFactory.getCurrentSession().doWork(new SpanRetrieval(text, range.getStart(), range.getEnd(), content));
+		return content.toString();
+	}
+
+	/**
+	 * Reads ranges of a text, fetching each page touched by them once; ranges
+	 * on the same or consecutive pages are served by a single query.
+	 */
+	public SortedMap<Range, String> bulkRead(Text text, SortedSet<Range> ranges) throws IOException {
+		final SortedMap<Range, String> results = Maps.newTreeMap();
+		final List<Range> sorted = Ranges.NATURAL_ORDERING.sortedCopy(ranges);
+		final int size = sorted.size();
+
+		final StringBuilder pages = new StringBuilder();
+		for (int rc = 0; rc < size;) {
+			final int firstPage = firstPage(sorted.get(rc));
+			int lastPage = lastPage(sorted.get(rc));
+			int next = rc + 1;
+			while (next < size && firstPage(sorted.get(next)) <= lastPage + 1) {
+				lastPage = Math.max(lastPage, lastPage(sorted.get(next)));
+				next++;
+			}
+
+			final int pagesStart = firstPage * pageSize;
+			pages.setLength(0);
+			sessionFactory.getCurrentSession().doWork(
+					new SpanRetrieval(text, pagesStart, (lastPage + 1) * pageSize, pages));
+
+			for (; rc < next; rc++) {
+				final Range range = sorted.get(rc);
+				final int start = Math.min(range.getStart() - pagesStart, pages.length());
+				final int end = Math.min(range.getEnd() - pagesStart, pages.length());
+				results.put(range, pages.substring(start, end));
+			}
+		}
+		return results;
+	}
+
+	public void write(final Text text, final Reader contents, final int contentLength) throws IOException {
+		sessionFactory.getCurrentSession().doWork(new Work() {
+
+			public void execute(Connection connection) throws SQLException {
+				final int textId = id(text);
+
+				final PreparedStatement deleteStmt = connection.prepareStatement("DELETE FROM " + pageRelation
+						+ " WHERE text_id = ?");
+				try {
+					deleteStmt.setInt(1, textId);
+					deleteStmt.executeUpdate();
+				} finally {
+					deleteStmt.close();
+				}
+
+				int length = 0;
+				final PreparedStatement insertStmt = connection.prepareStatement("INSERT INTO " + pageRelation
+						+ " (text_id, page_number, content) VALUES (?, ?, ?)");
+				try {
+					final char[] page = new char[pageSize];
+					for (int pageNumber = 0;; pageNumber++) {
+						int pageLength = 0;
+						for (int read; pageLength < pageSize; pageLength += read) {
+							if ((read = contents.read(page, pageLength, pageSize - pageLength)) < 0) {
+								break;
+							}
+						}
+						if (pageLength == 0) {
+							break;
+						}
+						insertStmt.setInt(1, textId);
+						insertStmt.setInt(2, pageNumber);
+						insertStmt.setString(3, new String(page, 0, pageLength));
+						insertStmt.addBatch();
+						length += pageLength;
+						if (pageLength < pageSize) {
+							break;
+						}
+					}
+					insertStmt.executeBatch();
+				} catch (IOException e) {
+					throw Throwables.propagate(e);
+				} finally {
+					insertStmt.close();
+				}
+
+				final PreparedStatement updateStmt = connection.prepareStatement("UPDATE " + textRelation + " SET "
+						+ lengthColumn + " = ? WHERE id = ?");
+				try {
+					updateStmt.setInt(1, length);
+					updateStmt.setInt(2, textId);
+					updateStmt.executeUpdate();
+				} finally {
+					updateStmt.close();
+				}
+			}
+		});
+	}
+
+	private int firstPage(Range range) {
+		return range.getStart() / pageSize;
+	}
+
+	private int lastPage(Range range) {
+		return Math.max(range.getStart(), range.getEnd() - 1) / pageSize;
+	}
+
+	private static int id(Text text) {
+		Preconditions.checkArgument(text instanceof TextRelation, text.getClass().toString());
+		return ((TextRelation) text).getId();
+	}
+
+	/**
+	 * Retrieves a run of consecutive pages of a text in order.
+	 */
+	private abstract class PageRetrieval implements Work {
+		private final Text text;
+		private final int firstPage;
+		private final int lastPage;
+
+		protected PageRetrieval(Text text, int firstPage, int lastPage) {
+			this.text = text;
+			this.firstPage = firstPage;
+			this.lastPage = lastPage;
+		}
+
+		public void execute(Connection connection) throws SQLException {
+			final PreparedStatement pageStmt = connection.prepareStatement("SELECT page_number, content FROM "
+					+ pageRelation + " WHERE text_id = ? AND page_number BETWEEN ? AND ? ORDER BY page_number");
+			try {
+				pageStmt.setInt(1, id(text));
+				pageStmt.setInt(2, firstPage);
+				pageStmt.setInt(3, lastPage);
+				final ResultSet resultSet = pageStmt.executeQuery();
+				try {
+					retrieve(resultSet);
+				} finally {
+					resultSet.close();
+				}
+			} catch (IOException e) {
+				Throwables.propagate(e);
+			} finally {
+				pageStmt.close();
+			}
+		}
+
+		protected abstract void retrieve(ResultSet pages) throws SQLException, IOException;
+	}
+
+	/**
+	 * Appends the characters of a text between two offsets, fetching the
+	 * pages they are located on.
+	 */
+	private class SpanRetrieval extends PageRetrieval {
+		private final int start;
+		private final int end;
+		private final StringBuilder content;
+
+		private SpanRetrieval(Text text, int start, int end, StringBuilder content) {
+			super(text, firstPage(new Range(start, end)), lastPage(new Range(start, end)));
+			this.start = start;
+			this.end = end;
+			this.content = content;
+		}
+
+		@Override
+		protected void retrieve(ResultSet pages) throws SQLException, IOException {
+			if (end <= start) {
+				return;
+			}
+			while (pages.next()) {
+				final int pageStart = pages.getInt(1) * pageSize;
+				final String page = pages.getString(2);
+				final int from = Math.max(0, start - pageStart);
+				final int to = Math.min(page.length(), end - pageStart);
+				if (from < to) {
+					content.append(page, from, to);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the pages of a text in sequence.
+	 */
+	private static class PageReader extends Reader {
+		private final ResultSet pages;
+		private String page = "";
+		private int offset = 0;
+
+		private PageReader(ResultSet pages) {
+			this.pages = pages;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			try {
+				while (offset == page.length()) {
+					if (!pages.next()) {
+						return -1;
+					}
+					page = pages.getString(2);
+					offset = 0;
+				}
+			} catch (SQLException e) {
+				throw new IOException(e.getMessage());
+			}
+			final int read = Math.min(len, page.length() - offset);
+			page.getChars(offset, offset + read, cbuf, off);
+			offset += read;
+			return read;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+}
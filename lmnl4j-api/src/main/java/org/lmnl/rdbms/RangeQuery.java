@@ -0,0 +1,78 @@
+package org.lmnl.rdbms;
+
+import org.hibernate.criterion.Conjunction;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Restrictions;
+import org.lmnl.Annotation;
+import org.lmnl.Range;
+import org.lmnl.RangeFilter;
+
+/**
+ * Restricts annotation queries to a set of ranges.
+ *
+ * <p/>
+ *
+ * The ranges are {@link RangeFilter normalized} before being turned into
+ * query criteria, so the size of the resulting SQL depends on the number of
+ * disjoint spans covered instead of the number of ranges given. Empty
+ * annotations located where two merged ranges meet have to be excluded by
+ * {@link #apply(Annotation)}.
+ *
+ * <p/>
+ *
+ * If more spans remain than a given limit, the query is restricted to their
+ * bounding range only and the results have to be filtered via
+ * {@link #apply(Annotation)}, which locates the matching span by binary
+ * search.
+ */
+class RangeQuery extends RangeFilter {
+
+	RangeQuery(Iterable<Range> ranges, boolean overlapping) {
+		super(ranges, overlapping);
+	}
+
+	/**
+	 * Determines whether query results have to be passed through this
+	 * predicate.
+	 *
+	 * @param maxDisjunction
+	 *                the maximum number of spans to be queried for
+	 *                individually
+	 */
+	boolean isFiltering(int maxDisjunction) {
+		return (size > maxDisjunction) || (junctionCount > 0);
+	}
+
+	/**
+	 * Yields the query criterion for the normalized ranges.
+	 *
+	 * @param maxDisjunction
+	 *                the maximum number of spans to be queried for
+	 *                individually; if exceeded, the bounding range of all
+	 *                spans is queried for
+	 */
+	Criterion toCriterion(int maxDisjunction) {
+		if (size > maxDisjunction) {
+			return criterion(starts[0], ends[size - 1]);
+		}
+		final Disjunction dj = Restrictions.disjunction();
+		for (int sc = 0; sc < size; sc++) {
+			dj.add(criterion(starts[sc], ends[sc]));
+		}
+		return dj;
+	}
+
+	private Criterion criterion(int start, int end) {
+		final Conjunction cj = Restrictions.conjunction();
+		if (overlapping) {
+			cj.add(Restrictions.lt("range.start", end));
+			cj.add(Restrictions.gt("range.end", start));
+		} else {
+			// bounding the start offset on both sides allows for an index range scan
+			cj.add(Restrictions.between("range.start", start, end));
+			cj.add(Restrictions.le("range.end", end));
+		}
+		return cj;
+	}
+}
@@ -7,10 +7,17 @@ import org.hibernate.Session;
 import org.hibernate.classic.*;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.hibernate.util.SerializationHelper;
 import org.lmnl.*;
+import org.lmnl.xml.OffsetMapping;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 
 public class RelationalAnnotationFactory {
     public static final Joiner ANCESTOR_JOINER = Joiner.on('.');
@@ -21,6 +28,8 @@ public class RelationalAnnotationFactory {
 
     private TextRepository textRepository;
 
+    private String offsetMappingRelation = "lmnl_text_offset_mapping";
+
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
@@ -33,6 +42,10 @@ public class RelationalAnnotationFactory {
         this.textRepository = textRepository;
     }
 
+    public void setOffsetMappingRelation(String offsetMappingRelation) {
+        this.offsetMappingRelation = offsetMappingRelation;
+    }
+
     public AnnotationRelation create(Text text, QName name, Range range) {
         Preconditions.checkArgument(text instanceof TextRelation);
         final AnnotationRelation created = new AnnotationRelation();
@@ -57,6 +70,78 @@ public class RelationalAnnotationFactory {
         return textRelation;
     }
 
+    /**
+     * Stores the offset mapping between a text and its XML source.
+     *
+     * <p/>
+     *
+     * Mappings are kept serialized in a {@link #setOffsetMappingRelation(String) relation}
+     * of their own, keyed by text, so they are fetched only via {@link #getOffsetMapping(Text)}
+     * and not whenever a text is loaded.
+     */
+    public void setOffsetMapping(final Text text, final OffsetMapping offsetMapping) {
+        Preconditions.checkArgument(text instanceof TextRelation);
+        final int textId = ((TextRelation) text).getId();
+        final byte[] serialized = SerializationHelper.serialize(offsetMapping);
+
+        // the text may not have been inserted yet
+        final Session session = sessionFactory.getCurrentSession();
+        session.flush();
+        session.doWork(new Work() {
+
+            public void execute(Connection connection) throws SQLException {
+                final PreparedStatement deleteStmt = connection.prepareStatement("DELETE FROM " + offsetMappingRelation + " WHERE text_id = ?");
+                try {
+                    deleteStmt.setInt(1, textId);
+                    deleteStmt.executeUpdate();
+                } finally {
+                    deleteStmt.close();
+                }
+
+                final PreparedStatement insertStmt = connection.prepareStatement("INSERT INTO " + offsetMappingRelation + " (text_id, mapping) VALUES (?, ?)");
+                try {
+                    insertStmt.setInt(1, textId);
+                    insertStmt.setBytes(2, serialized);
+                    insertStmt.executeUpdate();
+                } finally {
+                    insertStmt.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the offset mapping between a text and its XML source.
+     *
+     * @return the mapping or <code>null</code>, if the text has not been parsed with
+     *         {@link org.lmnl.xml.XMLParser#setCompactOffsets(boolean) compact offsets}
+     */
+    public OffsetMapping getOffsetMapping(Text text) {
+        Preconditions.checkArgument(text instanceof TextRelation);
+        final int textId = ((TextRelation) text).getId();
+        final byte[][] serialized = new byte[1][];
+        sessionFactory.getCurrentSession().doWork(new Work() {
+
+            public void execute(Connection connection) throws SQLException {
+                final PreparedStatement selectStmt = connection.prepareStatement("SELECT mapping FROM " + offsetMappingRelation + " WHERE text_id = ?");
+                try {
+                    selectStmt.setInt(1, textId);
+                    final ResultSet resultSet = selectStmt.executeQuery();
+                    try {
+                        if (resultSet.next()) {
+                            serialized[0] = resultSet.getBytes(1);
+                        }
+                    } finally {
+                        resultSet.close();
+                    }
+                } finally {
+                    selectStmt.close();
+                }
+            }
+        });
+        return (serialized[0] == null ? null : (OffsetMapping) SerializationHelper.deserialize(serialized[0]));
+    }
+
     public void delete(Text text) {
         final TextRelation textRelation = (TextRelation) text;
         final Session session = sessionFactory.getCurrentSession();
@@ -1,16 +1,20 @@
 package org.lmnl.rdbms;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Conjunction;
-import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.lmnl.*;
+import org.lmnl.xml.NodePath;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 public class RelationalAnnotationRepository extends AbstractAnnotationRepository {
@@ -19,6 +23,12 @@ public class RelationalAnnotationRepository extends AbstractAnnotationRepository
 
 	private QNameRepository nameRepository;
 
+	private boolean streaming = false;
+
+	private int fetchSize = 1000;
+
+	private int maxRangeDisjunction = 64;
+
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
@@ -27,13 +37,59 @@ public class RelationalAnnotationRepository extends AbstractAnnotationRepository
 		this.nameRepository = nameRepository;
 	}
 
-	@SuppressWarnings("unchecked")
-	public Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping) {
+	/**
+	 * Determines whether query results are streamed via a database cursor
+	 * instead of being loaded into the session as a whole.
+	 * 
+	 * <p/>
+	 * 
+	 * Streamed results are lazily evaluated on iteration and evicted from the
+	 * session one by one, so they have to be iterated within the transaction
+	 * the query has been issued in; changes to them are not persisted.
+	 * 
+	 * @param streaming
+	 *                <code>true</code> for cursor-based result iteration
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Sets the number of rows fetched per round trip when streaming results.
+	 * 
+	 * @param fetchSize
+	 *                the JDBC fetch size; zero or less for the driver's
+	 *                default
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Sets the maximum number of ranges queried for individually.
+	 * 
+	 * <p/>
+	 * 
+	 * Query ranges are merged before being translated into SQL. If more
+	 * disjoint ranges remain than given here, the query is restricted to
+	 * their bounding range and its results are filtered in memory.
+	 * 
+	 * @param maxRangeDisjunction
+	 *                the maximum number of range predicates in a query
+	 */
+	public void setMaxRangeDisjunction(int maxRangeDisjunction) {
+		this.maxRangeDisjunction = maxRangeDisjunction;
+	}
+
+	public Iterable<Annotation> find(Text text, Set<QName> names, Set<Range> ranges, boolean overlapping,
+			boolean documentOrder) {
 		Preconditions.checkArgument(text instanceof TextRelation, text.getClass().toString());
 
-		final Criteria c = sessionFactory.getCurrentSession().createCriteria(AnnotationRelation.class);
+		final Session session = sessionFactory.getCurrentSession();
+		final Criteria c = session.createCriteria(AnnotationRelation.class);
 		c.createCriteria("text").add(Restrictions.idEq(((TextRelation) text).getId()));
-		c.addOrder(Order.asc("range.start")).addOrder(Order.asc("range.end"));
+		c.addOrder(Order.asc("range.start"));
+		c.addOrder(documentOrder ? Order.desc("range.end") : Order.asc("range.end"));
 
 		if (names != null && !names.isEmpty()) {
 			final Set<Integer> nameIds = Sets.newHashSet();
@@ -43,16 +99,105 @@ public class RelationalAnnotationRepository extends AbstractAnnotationRepository
 			c.createCriteria("name").add(Restrictions.in("id", nameIds));
 		}
 
+		RangeQuery rangeQuery = null;
 		if (ranges != null && !ranges.isEmpty()) {
-			final Disjunction dj = Restrictions.disjunction();
-			for (Range range : ranges) {
-				final Conjunction cj = Restrictions.conjunction();
-				cj.add(Restrictions.lt("range.start", range.getEnd()));
-				cj.add(Restrictions.gt("range.end", range.getStart()));
-				dj.add(cj);
+			rangeQuery = new RangeQuery(ranges, overlapping);
+			c.add(rangeQuery.toCriterion(maxRangeDisjunction));
+			if (!rangeQuery.isFiltering(maxRangeDisjunction)) {
+				rangeQuery = null;
 			}
-			c.add(dj);
 		}
-		return c.list();
+
+		return list(session, c, rangeQuery);
+	}
+
+	public Iterable<Annotation> findAncestors(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		final byte[][] ancestors = (nodePath == null ? null : NodePath.ancestors(nodePath));
+		if (ancestors == null || ancestors.length == 0) {
+			return Collections.emptyList();
+		}
+		final Session session = sessionFactory.getCurrentSession();
+		final Criteria c = nodeCriteria(session, annotation);
+		c.add(Restrictions.in("nodePath", ancestors));
+		return list(session, c);
+	}
+
+	public Iterable<Annotation> findDescendants(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null) {
+			return Collections.emptyList();
+		}
+		final Session session = sessionFactory.getCurrentSession();
+		final Criteria c = nodeCriteria(session, annotation);
+		c.add(Restrictions.gt("nodePath", nodePath));
+		c.add(Restrictions.lt("nodePath", NodePath.upperBound(nodePath)));
+		return list(session, c);
+	}
+
+	public Iterable<Annotation> findChildren(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null) {
+			return Collections.emptyList();
+		}
+		final Session session = sessionFactory.getCurrentSession();
+		final Criteria c = nodeCriteria(session, annotation);
+		c.add(Restrictions.gt("nodePath", nodePath));
+		c.add(Restrictions.lt("nodePath", NodePath.upperBound(nodePath)));
+		c.add(Restrictions.eq("nodeDepth", ((AnnotationRelation) annotation).getNodeDepth() + 1));
+		return list(session, c);
+	}
+
+	public Iterable<Annotation> findSiblings(Annotation annotation) {
+		final byte[] nodePath = nodePath(annotation);
+		if (nodePath == null || nodePath.length == 0) {
+			return Collections.emptyList();
+		}
+		final byte[] parentPath = NodePath.parent(nodePath);
+		final Session session = sessionFactory.getCurrentSession();
+		final Criteria c = nodeCriteria(session, annotation);
+		if (parentPath.length > 0) {
+			c.add(Restrictions.gt("nodePath", parentPath));
+		}
+		c.add(Restrictions.lt("nodePath", NodePath.upperBound(parentPath)));
+		c.add(Restrictions.eq("nodeDepth", ((AnnotationRelation) annotation).getNodeDepth()));
+		c.add(Restrictions.ne("nodePath", nodePath));
+		return list(session, c);
+	}
+
+	/**
+	 * Determines the node path of an annotation to find relatives of.
+	 */
+	private byte[] nodePath(Annotation annotation) {
+		Preconditions.checkArgument(annotation instanceof AnnotationRelation, annotation.getClass().toString());
+		return ((AnnotationRelation) annotation).getNodePath();
+	}
+
+	/**
+	 * Creates a query for annotations of XML nodes in the text of a given
+	 * annotation, ordered by their node paths, i.e. in document order.
+	 * Restricted to a range of node paths, it is answered by a scan over the
+	 * <code>(annotation_text, node_path)</code> index.
+	 */
+	private Criteria nodeCriteria(Session session, Annotation annotation) {
+		final Criteria c = session.createCriteria(AnnotationRelation.class);
+		c.createCriteria("text").add(Restrictions.idEq(((AnnotationRelation) annotation).getText().getId()));
+		c.add(Restrictions.isNotNull("nodePath"));
+		c.addOrder(Order.asc("nodePath"));
+		return c;
+	}
+
+	private Iterable<Annotation> list(Session session, Criteria c) {
+		return list(session, c, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Iterable<Annotation> list(Session session, Criteria c, Predicate<Annotation> filter) {
+		if (streaming) {
+			// filter on the cursor, so that iterators stay closeable
+			return new ScrollableAnnotations(session, c, fetchSize, filter);
+		}
+		final List<Annotation> result = c.list();
+		return (filter == null ? result : Iterables.filter(result, filter));
 	}
 }
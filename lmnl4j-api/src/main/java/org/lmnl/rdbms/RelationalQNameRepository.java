@@ -6,9 +6,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Restrictions;
@@ -17,12 +25,41 @@ import org.lmnl.QNameRepository;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+/**
+ * Resolves qualified names to their persistent counterparts.
+ *
+ * <p/>
+ *
+ * Resolved names are kept in a concurrent cache, so cache hits require
+ * neither locking nor a database session. Names missing from the cache are
+ * looked up and created in the current session.
+ *
+ * <p/>
+ *
+ * Names created in a transaction are only visible to that transaction until
+ * it commits, so they are kept apart from the shared cache and published to
+ * it once the transaction has been committed; names created in a transaction
+ * which is rolled back are discarded.
+ *
+ * <p/>
+ *
+ * A name missed by concurrent threads is looked up and possibly created by
+ * one of them only, the others waiting for the creating transaction to
+ * complete; should it be rolled back, the name is looked up anew. Within
+ * other processes sharing the database, names are created independently, so
+ * the database's unique constraint on names fails the transaction creating a
+ * name last.
+ */
 public class RelationalQNameRepository implements QNameRepository {
 
-	private Map<QNameRelation, Integer> nameCache;
+	private volatile ConcurrentMap<QName, QNameRelation> nameCache;
+	private final ConcurrentMap<Transaction, CreatedNames> createdNames = new MapMaker().weakKeys().makeMap();
+	private final ConcurrentMap<QName, Creation> creations = new MapMaker().makeMap();
 	private int cacheSize = 1000;
+	private long creationTimeout = 10000;
 	private SessionFactory sessionFactory;
 
 	public void setCacheSize(int cacheSize) {
@@ -33,33 +70,140 @@ public class RelationalQNameRepository implements QNameRepository {
 		this.sessionFactory = sessionFactory;
 	}
 
+	/**
+	 * Sets how long to wait for another transaction creating a name also
+	 * missed by the current one.
+	 *
+	 * @param creationTimeout
+	 *                the timeout in milliseconds; defaults to 10 seconds
+	 */
+	public void setCreationTimeout(long creationTimeout) {
+		this.creationTimeout = creationTimeout;
+	}
+
 	public QName get(QName name) {
-		return Iterables.getOnlyElement(get(Collections.singleton(name)));
+		final QNameRelation cached = cache().get(name);
+		return (cached == null ? Iterables.getOnlyElement(get(Collections.singleton(name))) : cached);
 	}
 
-	public synchronized Set<QName> get(Set<QName> names) {
-		if (nameCache == null) {
-			nameCache = new MapMaker().maximumSize(cacheSize).makeMap();
+	public Set<QName> get(Set<QName> names) {
+		final ConcurrentMap<QName, QNameRelation> cache = cache();
+		final Set<QName> foundNames = Sets.newHashSetWithExpectedSize(names.size());
+
+		Set<QName> missing = null;
+		for (QName name : names) {
+			final QNameRelation cached = cache.get(name);
+			if (cached != null) {
+				foundNames.add(cached);
+			} else {
+				if (missing == null) {
+					missing = Sets.newHashSet();
+				}
+				missing.add(name);
+			}
+		}
+
+		if (missing != null) {
+			foundNames.addAll(resolve(missing));
 		}
+		return foundNames;
+	}
 
-		names = Sets.newHashSet(names);
-		final Set<QName> foundNames = Sets.newHashSetWithExpectedSize(names.size());
+	/**
+	 * Loads all persistent names into the cache, up to its size.
+	 *
+	 * <p/>
+	 *
+	 * Uses a session of its own, so it can be called on startup, i.e. as an
+	 * initialization method, outside of any transaction.
+	 */
+	public void preload() {
+		final ConcurrentMap<QName, QNameRelation> cache = cache();
+		final Session session = sessionFactory.openSession();
+		try {
+			for (Object name : session.createCriteria(QNameRelation.class).setMaxResults(cacheSize).list()) {
+				final QNameRelation relation = (QNameRelation) name;
+				cache.putIfAbsent(relation, relation);
+			}
+		} finally {
+			session.close();
+		}
+	}
+
+	public synchronized void clearCache() {
+		nameCache = null;
+	}
+
+	private ConcurrentMap<QName, QNameRelation> cache() {
+		ConcurrentMap<QName, QNameRelation> cache = nameCache;
+		if (cache == null) {
+			synchronized (this) {
+				cache = nameCache;
+				if (cache == null) {
+					nameCache = cache = new MapMaker().maximumSize(cacheSize).makeMap();
+				}
+			}
+		}
+		return cache;
+	}
 
+	private Set<QName> resolve(Set<QName> names) {
 		final Session session = sessionFactory.getCurrentSession();
-		for (Iterator<QName> nameIt = names.iterator(); nameIt.hasNext();) {
-			final Integer nameId = nameCache.get(nameIt.next());
-			if (nameId != null) {
-				final QName found = (QName) session.get(QNameRelation.class, nameId);
-				if (found != null) {
-					nameIt.remove();
-					foundNames.add(found);
+		final Transaction tx = session.getTransaction();
+		final boolean transactional = (tx != null && tx.isActive());
+
+		final ConcurrentMap<QName, QNameRelation> cache = cache();
+		final Set<QName> foundNames = Sets.newHashSetWithExpectedSize(names.size());
+		final Set<QName> missing = Sets.newHashSet(names);
+		while (!missing.isEmpty()) {
+			final CreatedNames created = (transactional ? createdNames.get(tx) : null);
+			final Map<QName, Creation> claimed = Maps.newHashMap();
+			Creation awaited = null;
+			for (Iterator<QName> it = missing.iterator(); it.hasNext();) {
+				final QName name = it.next();
+				QNameRelation resolved = cache.get(name);
+				if (resolved == null && created != null) {
+					resolved = created.names.get(name);
+				}
+				if (resolved != null) {
+					foundNames.add(resolved);
+					it.remove();
+					continue;
+				}
+				final Creation creation = new Creation();
+				final Creation concurrent = creations.putIfAbsent(name, creation);
+				if (concurrent == null) {
+					claimed.put(name, creation);
+					it.remove();
+				} else if (awaited == null) {
+					awaited = concurrent;
 				}
 			}
+			if (!claimed.isEmpty()) {
+				foundNames.addAll(create(session, (transactional ? tx : null), claimed));
+			}
+			if (awaited != null) {
+				awaited.await(creationTimeout);
+			}
 		}
+		return foundNames;
+	}
 
-		if (!names.isEmpty()) {
+	/**
+	 * Looks up names claimed by the current thread, creating those not found.
+	 *
+	 * <p/>
+	 *
+	 * Claims of names found or created outside of a transaction are released
+	 * immediately; claims of names created in a transaction are released when
+	 * it completes.
+	 */
+	private Set<QName> create(Session session, Transaction tx, Map<QName, Creation> claimed) {
+		final ConcurrentMap<QName, QNameRelation> cache = cache();
+		final Set<QName> foundNames = Sets.newHashSetWithExpectedSize(claimed.size());
+		try {
 			final Disjunction dj = Restrictions.disjunction();
-			for (QName name : names) {
+			for (QName name : claimed.keySet()) {
 				Conjunction cj = Restrictions.conjunction();
 				URI namespace = name.getNamespaceURI();
 				cj.add(namespace == null ? Restrictions.isNull("namespace") : Restrictions.eq("namespace",
@@ -72,22 +216,92 @@ public class RelationalQNameRepository implements QNameRepository {
 			final List<QNameRelation> found = session.createCriteria(QNameRelation.class).add(dj).list();
 			for (QNameRelation name : found) {
 				foundNames.add(name);
-				names.remove(name);
-				nameCache.put(name, name.getId());
+				cache.putIfAbsent(name, name);
+				release(name, claimed.remove(name));
+			}
+
+			CreatedNames newNames = null;
+			for (Iterator<Map.Entry<QName, Creation>> it = claimed.entrySet().iterator(); it.hasNext();) {
+				final Map.Entry<QName, Creation> claim = it.next();
+				final QName name = claim.getKey();
+				final QNameRelation relation = new QNameRelation(name.getNamespaceURI(), name.getLocalName());
+				session.save(relation);
+				foundNames.add(relation);
+				if (tx == null) {
+					// no transaction to wait for
+					cache.putIfAbsent(relation, relation);
+					release(name, claim.getValue());
+				} else {
+					if (newNames == null && (newNames = createdNames.get(tx)) == null) {
+						newNames = new CreatedNames(tx);
+						createdNames.put(tx, newNames);
+						tx.registerSynchronization(newNames);
+					}
+					newNames.names.put(relation, relation);
+					newNames.claims.put(name, claim.getValue());
+				}
+				it.remove();
 			}
-			
-			for (QName name : names) {
-				QNameRelation created = new QNameRelation(name.getNamespaceURI(), name.getLocalName());
-				session.save(created);
-				foundNames.add(created);
-				nameCache.put(created, created.getId());
+		} finally {
+			for (Map.Entry<QName, Creation> claim : claimed.entrySet()) {
+				release(claim.getKey(), claim.getValue());
 			}
 		}
-
 		return foundNames;
 	}
 
-	public synchronized void clearCache() {
-		nameCache = null;
+	private void release(QName name, Creation creation) {
+		if (creation != null) {
+			creations.remove(name, creation);
+			creation.done.countDown();
+		}
+	}
+
+	/**
+	 * A claim on creating a name, awaited by threads missing the same name.
+	 */
+	private static class Creation {
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private void await(long timeout) {
+			try {
+				if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+					throw new HibernateException("Timed out awaiting the concurrent creation of a name");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new HibernateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Names created in a transaction, published to the cache once it has been
+	 * committed.
+	 */
+	private class CreatedNames implements Synchronization {
+		private final Transaction tx;
+		private final Map<QName, QNameRelation> names = Maps.newHashMap();
+		private final Map<QName, Creation> claims = Maps.newHashMap();
+
+		private CreatedNames(Transaction tx) {
+			this.tx = tx;
+		}
+
+		public void beforeCompletion() {
+		}
+
+		public void afterCompletion(int status) {
+			createdNames.remove(tx);
+			if (status == Status.STATUS_COMMITTED) {
+				final ConcurrentMap<QName, QNameRelation> cache = cache();
+				for (QNameRelation name : names.values()) {
+					cache.putIfAbsent(name, name);
+				}
+			}
+			for (Map.Entry<QName, Creation> claim : claims.entrySet()) {
+				release(claim.getKey(), claim.getValue());
+			}
+		}
 	}
 }
@@ -10,6 +10,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
 
@@ -21,6 +22,7 @@ import org.hibernate.criterion.Restrictions;
 import org.hibernate.jdbc.Work;
 import org.lmnl.Annotation;
 import org.lmnl.Range;
+import org.lmnl.Ranges;
 import org.lmnl.Text;
 import org.lmnl.TextContentReader;
 import org.lmnl.TextRepository;
@@ -36,6 +38,7 @@ public class RelationalTextRepository implements TextRepository {
 	private SessionFactory sessionFactory;
 	private String contentColumn = "content";
 	private String textRelation = "lmnl_text";
+	private boolean coalescedBulkRead = false;
 
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
@@ -49,6 +52,25 @@ public class RelationalTextRepository implements TextRepository {
 		this.textRelation = textRelation;
 	}
 
+	/**
+	 * Determines whether {@link #bulkRead(Text, SortedSet) bulk reads}
+	 * retrieve the requested ranges in a single pass over the text.
+	 * 
+	 * <p/>
+	 * 
+	 * Overlapping and adjacent ranges are merged into covering spans, which
+	 * are read once and in order from one character stream, and the
+	 * requested ranges are sliced from them in memory. Otherwise every range
+	 * is retrieved separately, which costs a LOB round trip per range with
+	 * most databases.
+	 * 
+	 * @param coalescedBulkRead
+	 *                <code>true</code> for single-pass bulk reads
+	 */
+	public void setCoalescedBulkRead(boolean coalescedBulkRead) {
+		this.coalescedBulkRead = coalescedBulkRead;
+	}
+
 	public void read(Text text, final TextContentReader reader) throws IOException {
 		sessionFactory.getCurrentSession().doWork(new TextContentRetrieval<Void>(text) {
 
@@ -90,8 +112,17 @@ public class RelationalTextRepository implements TextRepository {
 
 			@Override
 			protected Void retrieve(Clob content) throws SQLException, IOException {
-				for (Range range : ranges) {
-					results.put(range, content.getSubString(range.getStart() + 1, range.length()));
+				if (coalescedBulkRead) {
+					Reader contentReader = null;
+					try {
+						coalescedRead(contentReader = content.getCharacterStream(), ranges, results);
+					} finally {
+						Closeables.close(contentReader, false);
+					}
+				} else {
+					for (Range range : ranges) {
+						results.put(range, content.getSubString(range.getStart() + 1, range.length()));
+					}
 				}
 				return null;
 			}
@@ -99,6 +130,54 @@ public class RelationalTextRepository implements TextRepository {
 		return results;
 	}
 
+	/**
+	 * Reads ranges of a text in one pass, merging overlapping and adjacent
+	 * ranges into spans which are read once each.
+	 */
+	private static void coalescedRead(Reader content, SortedSet<Range> ranges, SortedMap<Range, String> results)
+			throws IOException {
+		final List<Range> sorted = Ranges.NATURAL_ORDERING.sortedCopy(ranges);
+		final int size = sorted.size();
+
+		char[] span = new char[0];
+		int offset = 0;
+		for (int rc = 0; rc < size;) {
+			final int spanStart = sorted.get(rc).getStart();
+			int spanEnd = sorted.get(rc).getEnd();
+			int next = rc + 1;
+			while (next < size && sorted.get(next).getStart() <= spanEnd) {
+				spanEnd = Math.max(spanEnd, sorted.get(next).getEnd());
+				next++;
+			}
+
+			// skip the gap to the span and read it
+			for (long skipped; offset < spanStart; offset += skipped) {
+				if ((skipped = content.skip(spanStart - offset)) <= 0) {
+					break;
+				}
+			}
+			if (span.length < spanEnd - spanStart) {
+				span = new char[spanEnd - spanStart];
+			}
+			int spanLength = 0;
+			if (offset == spanStart) {
+				for (int read; spanLength < spanEnd - spanStart; spanLength += read) {
+					if ((read = content.read(span, spanLength, spanEnd - spanStart - spanLength)) < 0) {
+						break;
+					}
+				}
+				offset += spanLength;
+			}
+
+			for (; rc < next; rc++) {
+				final Range range = sorted.get(rc);
+				final int start = Math.min(range.getStart() - spanStart, spanLength);
+				final int end = Math.min(range.getEnd() - spanStart, spanLength);
+				results.put(range, new String(span, start, end - start));
+			}
+		}
+	}
+
 	public void write(final Text text, final Reader contents, final int contentLength) throws IOException {
 		sessionFactory.getCurrentSession().doWork(new Work() {
 
@@ -0,0 +1,43 @@
+package org.lmnl.rdbms;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+
+import org.lmnl.Text;
+import org.lmnl.xml.XMLImporter;
+import org.lmnl.xml.XMLParser;
+import org.lmnl.xml.XMLParserConfiguration;
+
+/**
+ * Imports an XML document into a pair of new texts, one holding the
+ * document's source and one holding the parsed text.
+ *
+ * <p/>
+ *
+ * Meant to be run in a transaction of its own per document.
+ */
+public class RelationalXMLImporter implements XMLImporter {
+	private XMLParser xmlParser;
+	private RelationalAnnotationFactory annotationFactory;
+
+	public void setXmlParser(XMLParser xmlParser) {
+		this.xmlParser = xmlParser;
+	}
+
+	public void setAnnotationFactory(RelationalAnnotationFactory annotationFactory) {
+		this.annotationFactory = annotationFactory;
+	}
+
+	public Text importXML(Source xml, XMLParserConfiguration configuration) throws IOException,
+			TransformerException, XMLStreamException {
+		final Text source = annotationFactory.newText();
+		xmlParser.load(source, xml);
+
+		final Text text = annotationFactory.newText();
+		xmlParser.parse(source, text, configuration);
+		return text;
+	}
+}
@@ -1,24 +1,53 @@
 package org.lmnl.rdbms;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.util.SerializationHelper;
 import org.lmnl.Annotation;
 import org.lmnl.QName;
 import org.lmnl.QNameRepository;
 import org.lmnl.Range;
+import org.lmnl.Text;
+import org.lmnl.xml.NodePath;
+import org.lmnl.xml.OffsetMapping;
 import org.lmnl.xml.XMLParser;
+import org.lmnl.xml.XMLParserConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 public class RelationalXMLParser extends XMLParser {
+	private static final Logger LOG = LoggerFactory.getLogger(RelationalXMLParser.class);
 	private static final Joiner PATH_JOINER = Joiner.on('.');
 
 	protected SessionFactory sessionFactory;
 	protected QNameRepository nameRepository;
 	protected RelationalAnnotationFactory annotationFactory;
 
+	private boolean bulkInsert = false;
+	private int bulkInsertBatchSize = 1000;
+	private final AtomicLong bulkInserted = new AtomicLong();
+	private final AtomicLong bulkInsertTime = new AtomicLong();
+
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
@@ -31,8 +60,81 @@ public class RelationalXMLParser extends XMLParser {
 		this.annotationFactory = annotationFactory;
 	}
 
-	protected Annotation startAnnotation(Session session, QName name, Map<QName, String> attrs, int start,
+	/**
+	 * Determines whether annotations are inserted via batched JDBC statements
+	 * instead of being saved one by one through the current Hibernate session.
+	 *
+	 * <p/>
+	 *
+	 * Bulk-inserted annotations bypass the session, i.e. they are neither
+	 * cached nor subject to interceptors or cascades. Their identifiers are
+	 * taken from the configured identifier generator upfront, so a generator
+	 * allocating identifiers in blocks (like <code>seqhilo</code>) should be
+	 * mapped; with identity columns, identifiers are assigned by the database
+	 * and not set on the inserted annotations.
+	 *
+	 * @param bulkInsert
+	 *                <code>true</code> for batched inserts
+	 */
+	public void setBulkInsert(boolean bulkInsert) {
+		this.bulkInsert = bulkInsert;
+	}
+
+	/**
+	 * Sets the maximum number of annotations inserted per JDBC batch in
+	 * {@link #setBulkInsert(boolean) bulk insert mode}.
+	 *
+	 * <p/>
+	 *
+	 * Annotations are buffered until the {@link #setFlushPolicy(org.lmnl.xml.FlushPolicy)
+	 * flush policy} calls for a flush, which executes as many batches as
+	 * needed.
+	 *
+	 * @param bulkInsertBatchSize
+	 *                the batch size
+	 */
+	public void setBulkInsertBatchSize(int bulkInsertBatchSize) {
+		Preconditions.checkArgument(bulkInsertBatchSize > 0);
+		this.bulkInsertBatchSize = bulkInsertBatchSize;
+	}
+
+	/**
+	 * The number of annotations bulk-inserted by this parser so far, summed
+	 * up over all documents parsed.
+	 */
+	public long getBulkInserted() {
+		return bulkInserted.get();
+	}
+
+	/**
+	 * The time spent bulk-inserting annotations so far, summed up over all
+	 * documents parsed.
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getBulkInsertTime() {
+		return TimeUnit.NANOSECONDS.toMillis(bulkInsertTime.get());
+	}
+
+	/**
+	 * The average bulk insert throughput so far.
+	 *
+	 * @return the number of annotations inserted per second
+	 */
+	public long getBulkInsertRate() {
+		final long nanos = bulkInsertTime.get();
+		return (nanos == 0 ? 0 : bulkInserted.get() * TimeUnit.SECONDS.toNanos(1) / nanos);
+	}
+
+	@Override
+	protected Session newSession(Text source, Text target, XMLParserConfiguration configuration) {
+		return (bulkInsert ? new BulkInsertSession(source, target, configuration) : super.newSession(source,
+				target, configuration));
+	}
+
+	protected Annotation startAnnotation(Session session, QName name, Attributes attributes, int start,
 			Iterable<Integer> nodePath) {
+		final Map<QName, String> attrs = attributes.toMap();
 		attrs.put(XMLParser.NODE_PATH_NAME, PATH_JOINER.join(nodePath));
 
 		AnnotationRelation annotation = new AnnotationRelation();
@@ -40,23 +142,168 @@ public class RelationalXMLParser extends XMLParser {
 		annotation.setName(nameRepository.get(name));
 		annotation.setRange(new Range(start, start));
 		annotation.setSerializableData((Serializable) attrs);
+		annotation.setNodePath(NodePath.encode(nodePath));
 		return annotation;
 	}
 
-	protected void endAnnotation(Annotation annotation, int offset) {
+	protected void endAnnotation(Session session, Annotation annotation, int offset) {
 		annotation.getRange().setEnd(offset);
-		sessionFactory.getCurrentSession().save(annotation);
+		if (session instanceof BulkInsertSession) {
+			((BulkInsertSession) session).insert((AnnotationRelation) annotation);
+		} else {
+			sessionFactory.getCurrentSession().save(annotation);
+		}
 	}
 
 	@Override
 	protected void newOffsetDelta(Session session, Range textRange, Range sourceRange) {
+		if (session instanceof BulkInsertSession) {
+			final AnnotationRelation offsetDelta = new AnnotationRelation();
+			offsetDelta.setText((TextRelation) session.target);
+			offsetDelta.setName(nameRepository.get(OFFSET_DELTA_NAME));
+			offsetDelta.setRange(textRange);
+			offsetDelta.setSerializableData(sourceRange);
+			((BulkInsertSession) session).insert(offsetDelta);
+		} else {
 			annotationFactory.create(session.target, OFFSET_DELTA_NAME,//
 					textRange).setSerializableData(sourceRange);
+		}
+	}
+
+	@Override
+	protected void newOffsetMapping(Session session, OffsetMapping offsetMapping) {
+		annotationFactory.setOffsetMapping(session.target, offsetMapping);
 	}
 
-	protected void newXMLEventBatch() {
-		org.hibernate.Session session = sessionFactory.getCurrentSession();
-		session.flush();
-		session.clear();
+	protected void newXMLEventBatch(Session session) {
+		if (session instanceof BulkInsertSession) {
+			((BulkInsertSession) session).insertBatch();
+		}
+		org.hibernate.Session hibernateSession = sessionFactory.getCurrentSession();
+		hibernateSession.flush();
+		hibernateSession.clear();
+	}
+
+	/**
+	 * Parser state buffering annotations for batched insertion.
+	 */
+	protected class BulkInsertSession extends Session implements Work {
+		private final IdentifierGenerator idGenerator;
+		private final String insertSql;
+		private final List<AnnotationRelation> batch = Lists.newArrayList();
+
+		private long inserted = 0;
+		private long insertTime = 0;
+
+		protected BulkInsertSession(Text source, Text target, XMLParserConfiguration configuration) {
+			super(source, target, configuration);
+
+			final SessionFactoryImplementor sfi = (SessionFactoryImplementor) sessionFactory;
+			final AbstractEntityPersister persister = (AbstractEntityPersister) sfi.getEntityPersister(AnnotationRelation.class.getName());
+			final IdentifierGenerator generator = persister.getIdentifierGenerator();
+			idGenerator = (generator instanceof PostInsertIdentifierGenerator ? null : generator);
+
+			final StringBuilder columns = new StringBuilder();
+			if (idGenerator != null) {
+				columns.append(persister.getIdentifierColumnNames()[0]).append(", ");
+			}
+			columns.append(persister.toColumns("name")[0]).append(", ");
+			columns.append(persister.toColumns("text")[0]).append(", ");
+			columns.append(persister.toColumns("range.start")[0]).append(", ");
+			columns.append(persister.toColumns("range.end")[0]).append(", ");
+			columns.append(persister.toColumns("serializableData")[0]).append(", ");
+			columns.append(persister.toColumns("nodePath")[0]).append(", ");
+			columns.append(persister.toColumns("nodeDepth")[0]);
+			insertSql = "INSERT INTO " + persister.getTableName() + " (" + columns + ") VALUES ("
+					+ (idGenerator == null ? "" : "?, ") + "?, ?, ?, ?, ?, ?, ?)";
+		}
+
+		protected void insert(AnnotationRelation annotation) {
+			batch.add(annotation);
+		}
+
+		protected void insertBatch() {
+			if (batch.isEmpty()) {
+				return;
+			}
+			final long start = System.nanoTime();
+
+			final org.hibernate.Session session = sessionFactory.getCurrentSession();
+			session.flush();
+			if (idGenerator != null) {
+				for (AnnotationRelation annotation : batch) {
+					final Number id = (Number) idGenerator.generate((SessionImplementor) session, annotation);
+					annotation.setId(id.intValue());
+				}
+			}
+			session.doWork(this);
+
+			final long time = System.nanoTime() - start;
+			inserted += batch.size();
+			insertTime += time;
+			bulkInserted.addAndGet(batch.size());
+			bulkInsertTime.addAndGet(time);
+			batch.clear();
+		}
+
+		public void execute(Connection connection) throws SQLException {
+			final PreparedStatement insert = connection.prepareStatement(insertSql);
+			try {
+				int batchSize = 0;
+				for (AnnotationRelation annotation : batch) {
+					int pc = 1;
+					if (idGenerator != null) {
+						insert.setInt(pc++, annotation.getId());
+					}
+					insert.setInt(pc++, ((QNameRelation) annotation.getName()).getId());
+					insert.setInt(pc++, annotation.getText().getId());
+					insert.setInt(pc++, annotation.getRange().getStart());
+					insert.setInt(pc++, annotation.getRange().getEnd());
+
+					final Serializable data = annotation.getSerializableData();
+					if (data == null) {
+						insert.setNull(pc++, Types.VARBINARY);
+					} else {
+						insert.setBytes(pc++, SerializationHelper.serialize(data));
+					}
+
+					final byte[] nodePath = annotation.getNodePath();
+					if (nodePath == null) {
+						insert.setNull(pc++, Types.VARBINARY);
+					} else {
+						insert.setBytes(pc++, nodePath);
+					}
+					insert.setInt(pc++, annotation.getNodeDepth());
+					insert.addBatch();
+					if (++batchSize == bulkInsertBatchSize) {
+						insert.executeBatch();
+						batchSize = 0;
+					}
+				}
+				if (batchSize > 0) {
+					insert.executeBatch();
+				}
+			} finally {
+				insert.close();
+			}
+		}
+
+		@Override
+		protected void dispose() throws IOException {
+			super.dispose();
+			if (LOG.isDebugEnabled() && inserted > 0) {
+				final long millis = Math.max(1, insertTime / 1000000);
+				LOG.debug("Bulk-inserted " + inserted + " annotation(s) in " + millis + " ms ("
+						+ (inserted * 1000 / millis) + " rows/s)");
+			}
+		}
+
+		public long getInserted() {
+			return inserted;
+		}
+
+		public long getInsertTime() {
+			return insertTime;
+		}
 	}
 }
@@ -0,0 +1,116 @@
+package org.lmnl.rdbms;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import javax.transaction.Synchronization;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.lmnl.Annotation;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Lazily iterates over the results of an annotation query via a forward-only
+ * database cursor.
+ * 
+ * <p/>
+ * 
+ * Every call to {@link #iterator()} executes the query anew. Annotations are
+ * evicted from the session as soon as they have been read, so the session does
+ * not grow with the size of the result. Returned annotations are thus detached
+ * and changes to them are not persisted. The cursor is closed when the
+ * iteration ends, when {@link Cursor#close()} is called or, if the iteration is
+ * abandoned, when the surrounding transaction completes.
+ * 
+ * <p/>
+ * 
+ * Results can be filtered while iterating, so filtered iterations remain
+ * closeable.
+ */
+class ScrollableAnnotations implements Iterable<Annotation> {
+	private final Session session;
+	private final Criteria criteria;
+	private final int fetchSize;
+	private final Predicate<Annotation> filter;
+
+	/**
+	 * @param filter
+	 *                a predicate annotations have to satisfy; may be
+	 *                <code>null</code>
+	 */
+	ScrollableAnnotations(Session session, Criteria criteria, int fetchSize, Predicate<Annotation> filter) {
+		this.session = session;
+		this.criteria = criteria;
+		this.fetchSize = fetchSize;
+		this.filter = filter;
+	}
+
+	public Iterator<Annotation> iterator() {
+		return new Cursor();
+	}
+
+	class Cursor extends AbstractIterator<Annotation> implements Closeable, Synchronization {
+		private ScrollableResults results;
+		private boolean closed = false;
+
+		@Override
+		protected Annotation computeNext() {
+			if (closed) {
+				return endOfData();
+			}
+			if (results == null) {
+				open();
+			}
+			while (results.next()) {
+				final Annotation annotation = (Annotation) results.get(0);
+				session.evict(annotation);
+				if (filter == null || filter.apply(annotation)) {
+					return annotation;
+				}
+			}
+			close();
+			return endOfData();
+		}
+
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (results != null) {
+				results.close();
+				results = null;
+			}
+		}
+
+		public void beforeCompletion() {
+		}
+
+		public void afterCompletion(int status) {
+			try {
+				close();
+			} catch (HibernateException e) {
+				// the session has released its JDBC resources already
+			}
+		}
+
+		private void open() {
+			if (fetchSize > 0) {
+				criteria.setFetchSize(fetchSize);
+			}
+			results = criteria.scroll(ScrollMode.FORWARD_ONLY);
+
+			final Transaction transaction = session.getTransaction();
+			if (transaction != null && transaction.isActive()) {
+				transaction.registerSynchronization(this);
+			}
+		}
+	}
+}
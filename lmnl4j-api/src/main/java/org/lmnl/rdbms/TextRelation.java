@@ -12,6 +12,7 @@ public class TextRelation implements Text {
 	private int id;
 	private Clob content;
 	private Set<Annotation> annotations;
+	private Integer contentLength;
 	
 	public int getId() {
 		return id;
@@ -39,6 +40,17 @@ public class TextRelation implements Text {
 		this.annotations = annotations;
 	}
 
+	/**
+	 * @see PagedTextRepository#length(Text)
+	 */
+	public Integer getContentLength() {
+		return contentLength;
+	}
+
+	public void setContentLength(Integer contentLength) {
+		this.contentLength = contentLength;
+	}
+
 	@Override
 	public String toString() {
 		return Objects.toStringHelper(this).add("id", Integer.toString(id)).toString();
@@ -0,0 +1,51 @@
+package org.lmnl.rdbms;
+
+import javax.transaction.Synchronization;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.lmnl.CachingTextRepository;
+import org.lmnl.Text;
+import org.lmnl.TextRepository;
+
+/**
+ * Caches texts read from a repository written to in Hibernate transactions.
+ *
+ * <p/>
+ *
+ * Writes within an active transaction of the current session complete once
+ * that transaction has been committed or rolled back, so the cache neither
+ * serves contents superseded by a committed write nor contents of a write
+ * not yet committed.
+ */
+public class TransactionalTextCache extends CachingTextRepository {
+	private final SessionFactory sessionFactory;
+
+	public TransactionalTextCache(TextRepository delegate, SessionFactory sessionFactory) {
+		super(delegate);
+		this.sessionFactory = sessionFactory;
+	}
+
+	public TransactionalTextCache(TextRepository delegate, SessionFactory sessionFactory, int pageSize, long maxChars) {
+		super(delegate, pageSize, maxChars);
+		this.sessionFactory = sessionFactory;
+	}
+
+	@Override
+	protected void afterWrite(final Text text) {
+		final Transaction tx = sessionFactory.getCurrentSession().getTransaction();
+		if (tx == null || !tx.isActive()) {
+			completeWrite(text);
+			return;
+		}
+		tx.registerSynchronization(new Synchronization() {
+
+			public void beforeCompletion() {
+			}
+
+			public void afterCompletion(int status) {
+				completeWrite(text);
+			}
+		});
+	}
+}
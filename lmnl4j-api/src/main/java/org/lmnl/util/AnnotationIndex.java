@@ -0,0 +1,99 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import java.util.List;
+
+import org.lmnl.Annotation;
+import org.lmnl.Range;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Indexes a collection of range annotations by their ranges.
+ *
+ * <p/>
+ *
+ * The annotations are copied and indexed once by an {@link IntervalIndex};
+ * query results retain the order of the indexed collection. Building the
+ * index takes linear time for annotations given in document order.
+ *
+ * @param <A>
+ *                the type of the indexed annotations
+ */
+public class AnnotationIndex<A extends Annotation> {
+	private final List<A> annotations;
+	private final IntervalIndex index;
+
+	public AnnotationIndex(Iterable<A> annotations) {
+		this.annotations = Lists.newArrayList(annotations);
+
+		final int size = this.annotations.size();
+		final int[] starts = new int[size];
+		final int[] ends = new int[size];
+		for (int ac = 0; ac < size; ac++) {
+			final Range range = this.annotations.get(ac).getRange();
+			starts[ac] = range.getStart();
+			ends[ac] = range.getEnd();
+		}
+		this.index = new IntervalIndex(starts, ends, size);
+	}
+
+	public int size() {
+		return annotations.size();
+	}
+
+	/**
+	 * Finds annotations overlapping with a range.
+	 *
+	 * @see IntervalIndex#overlapping(int, int)
+	 */
+	public List<A> overlapping(Range range) {
+		return get(index.overlapping(range.getStart(), range.getEnd()));
+	}
+
+	/**
+	 * Finds annotations covering the character at an offset.
+	 *
+	 * @see IntervalIndex#covering(int)
+	 */
+	public List<A> covering(int offset) {
+		return get(index.covering(offset));
+	}
+
+	/**
+	 * Finds annotations contained in a range.
+	 *
+	 * @see IntervalIndex#containedIn(int, int)
+	 */
+	public List<A> containedIn(Range range) {
+		return get(index.containedIn(range.getStart(), range.getEnd()));
+	}
+
+	private List<A> get(int[] positions) {
+		final List<A> result = Lists.newArrayListWithCapacity(positions.length);
+		for (int position : positions) {
+			result.add(annotations.get(position));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,264 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Static index of intervals given by start and end offsets, answering overlap,
+ * stabbing and containment queries.
+ *
+ * <p/>
+ *
+ * The intervals are arranged in a <i>nested containment list</i>: intervals
+ * not contained in any other form the top-level list, all others are nested
+ * in the list of the last preceding interval containing them. As no interval
+ * in a list contains another, start and end offsets both ascend within each
+ * list, so the intervals of a list relevant to a query are located by binary
+ * search and only lists nested in relevant intervals are descended into. For
+ * typical markup, nested only a few levels deep, queries thus take
+ * <i>O(log n + k)</i> time, with <i>k</i> being the number of results.
+ *
+ * <p/>
+ *
+ * Intervals are identified by their position in the input; results are
+ * reported in input order. The index is built in linear time from input in
+ * document order, i.e. sorted by start offset ascending and end offset
+ * descending; other input is sorted first.
+ */
+public class IntervalIndex {
+	private final int size;
+
+	private final int[] starts;
+	private final int[] ends;
+	private final int[] positions;
+	private final int[] nested;
+	private final int[] nestedEnds;
+	private final int topLevelEnd;
+
+	/**
+	 * Builds an index.
+	 *
+	 * @param starts
+	 *                the start offsets of the intervals
+	 * @param ends
+	 *                the end offsets of the intervals
+	 * @param size
+	 *                the number of intervals, i.e. of offsets used from both
+	 *                arrays
+	 */
+	public IntervalIndex(int[] starts, int[] ends, int size) {
+		Preconditions.checkArgument(size >= 0 && size <= starts.length && size <= ends.length);
+		this.size = size;
+
+		final int[] order = new int[size];
+		boolean sorted = true;
+		for (int ic = 0; ic < size; ic++) {
+			order[ic] = ic;
+			if (ic > 0 && compare(starts, ends, ic - 1, ic) > 0) {
+				sorted = false;
+			}
+		}
+		if (!sorted) {
+			mergeSort(starts, ends, order, new int[size], 0, size);
+		}
+
+		// determine the innermost containing interval of each one in
+		// document order, counting the intervals nested in each
+		final int[] parents = new int[size];
+		final int[] nestedCounts = new int[size + 1];
+		final int[] stack = new int[size];
+		int stackSize = 0;
+		for (int oc = 0; oc < size; oc++) {
+			final int end = ends[order[oc]];
+			while (stackSize > 0 && ends[order[stack[stackSize - 1]]] < end) {
+				stackSize--;
+			}
+			parents[oc] = (stackSize == 0 ? size : stack[stackSize - 1]);
+			nestedCounts[parents[oc]]++;
+			stack[stackSize++] = oc;
+		}
+
+		// allocate contiguous lists, the top-level list first
+		final int[] listStarts = new int[size + 1];
+		listStarts[size] = 0;
+		for (int oc = 0, listStart = nestedCounts[size]; oc < size; oc++) {
+			listStarts[oc] = listStart;
+			listStart += nestedCounts[oc];
+		}
+		this.topLevelEnd = nestedCounts[size];
+
+		this.starts = new int[size];
+		this.ends = new int[size];
+		this.positions = new int[size];
+		this.nested = new int[size];
+		this.nestedEnds = new int[size];
+		final int[] fill = new int[size + 1];
+		for (int oc = 0; oc < size; oc++) {
+			final int parent = parents[oc];
+			final int slot = listStarts[parent] + fill[parent]++;
+			final int position = order[oc];
+			this.starts[slot] = starts[position];
+			this.ends[slot] = ends[position];
+			this.positions[slot] = position;
+			this.nested[slot] = listStarts[oc];
+			this.nestedEnds[slot] = listStarts[oc] + nestedCounts[oc];
+		}
+	}
+
+	/**
+	 * The number of indexed intervals.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds intervals overlapping with a range, i.e. starting before its end
+	 * and ending after its start.
+	 *
+	 * <p/>
+	 *
+	 * Empty intervals overlap with ranges strictly enclosing them; empty
+	 * ranges are overlapped by intervals strictly enclosing them.
+	 *
+	 * @return the positions of the intervals, ascending
+	 */
+	public int[] overlapping(int start, int end) {
+		final Results results = new Results();
+		overlapping(0, topLevelEnd, start, end, results);
+		return results.toArray();
+	}
+
+	/**
+	 * Finds intervals covering the character at an offset, i.e. starting at or
+	 * before and ending after it.
+	 *
+	 * @return the positions of the intervals, ascending
+	 */
+	public int[] covering(int offset) {
+		return overlapping(offset, offset + 1);
+	}
+
+	/**
+	 * Finds intervals contained in a range, i.e. starting at or after its
+	 * start and ending at or before its end.
+	 *
+	 * @return the positions of the intervals, ascending
+	 */
+	public int[] containedIn(int start, int end) {
+		final Results results = new Results();
+		containedIn(0, topLevelEnd, start, end, results);
+		return results.toArray();
+	}
+
+	private void overlapping(int from, int to, int start, int end, Results results) {
+		for (int slot = firstEndingAfter(from, to, start); slot < to && starts[slot] < end; slot++) {
+			results.add(positions[slot]);
+			if (nested[slot] < nestedEnds[slot]) {
+				overlapping(nested[slot], nestedEnds[slot], start, end, results);
+			}
+		}
+	}
+
+	private void containedIn(int from, int to, int start, int end, Results results) {
+		for (int slot = firstEndingAfter(from, to, start - 1); slot < to && starts[slot] <= end; slot++) {
+			if (starts[slot] >= start && ends[slot] <= end) {
+				addNested(slot, results);
+			} else if (nested[slot] < nestedEnds[slot]) {
+				containedIn(nested[slot], nestedEnds[slot], start, end, results);
+			}
+		}
+	}
+
+	private void addNested(int slot, Results results) {
+		results.add(positions[slot]);
+		for (int nc = nested[slot]; nc < nestedEnds[slot]; nc++) {
+			addNested(nc, results);
+		}
+	}
+
+	/**
+	 * Locates the first interval in a list ending after an offset.
+	 */
+	private int firstEndingAfter(int from, int to, int offset) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (ends[mid] > offset) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	private static int compare(int[] starts, int[] ends, int a, int b) {
+		return (starts[a] == starts[b] ? ends[b] - ends[a] : starts[a] - starts[b]);
+	}
+
+	private static void mergeSort(int[] starts, int[] ends, int[] order, int[] buf, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		final int mid = (from + to) >>> 1;
+		mergeSort(starts, ends, order, buf, from, mid);
+		mergeSort(starts, ends, order, buf, mid, to);
+
+		System.arraycopy(order, from, buf, from, to - from);
+		for (int left = from, right = mid, oc = from; oc < to; oc++) {
+			if (right >= to || (left < mid && compare(starts, ends, buf[left], buf[right]) <= 0)) {
+				order[oc] = buf[left++];
+			} else {
+				order[oc] = buf[right++];
+			}
+		}
+	}
+
+	/**
+	 * Collects the positions of matching intervals.
+	 */
+	private static class Results {
+		private int[] positions = new int[16];
+		private int size = 0;
+
+		private void add(int position) {
+			if (size == positions.length) {
+				final int[] grown = new int[size * 2];
+				System.arraycopy(positions, 0, grown, 0, size);
+				positions = grown;
+			}
+			positions[size++] = position;
+		}
+
+		private int[] toArray() {
+			final int[] result = new int[size];
+			System.arraycopy(positions, 0, result, 0, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
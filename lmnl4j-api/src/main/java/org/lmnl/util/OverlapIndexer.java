@@ -22,11 +22,15 @@
 package org.lmnl.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.lmnl.Annotation;
 import org.lmnl.Range;
@@ -46,6 +50,16 @@ import com.google.common.collect.Lists;
  * non-overlapping segments of a text with the segments constructed such, that
  * variance in markup can be recognized.
  * 
+ * <p/>
+ * 
+ * By default, the range annotations are placed in an {@link IntervalIndex},
+ * which is queried for every segment. In <i>sweeping</i> mode, the
+ * annotations are sorted by their start offsets once and a single sweep over
+ * the segments maintains the set of annotations active at the current
+ * position, yielding the same index in <i>O((n + k) log n)</i> time, with
+ * <i>n</i> being the number of annotations and <i>k</i> the size of the
+ * resulting index.
+ * 
  * @author <a href="http://gregor.middell.net/"
  *         title="Homepage of Gregor Middell">Gregor Middell</a>
  * 
@@ -53,6 +67,7 @@ import com.google.common.collect.Lists;
 public class OverlapIndexer implements Function<Iterable<Annotation>, SortedMap<Range, List<Annotation>>> {
 
 	private final Predicate<Annotation> partitioningFilter;
+	private final boolean sweeping;
 
 	/**
 	 * Creates an indexing function, that fully partitions given range
@@ -73,13 +88,44 @@ public class OverlapIndexer implements Function<Iterable<Annotation>, SortedMap<
 	 *                keys
 	 */
 	public OverlapIndexer(Predicate<Annotation> partitioningFilter) {
+		this(partitioningFilter, false);
+	}
+
+	/**
+	 * Creates an indexing function with the given predicate determining the
+	 * subset of range annotations used for partitioning.
+	 * 
+	 * @param partitioningFilter
+	 *                the filter predicate used for determining the index
+	 *                keys
+	 * @param sweeping
+	 *                whether the index is built in a single sweep over
+	 *                start-sorted annotations instead of scanning the
+	 *                annotations for every segment
+	 */
+	public OverlapIndexer(Predicate<Annotation> partitioningFilter, boolean sweeping) {
 		this.partitioningFilter = partitioningFilter;
+		this.sweeping = sweeping;
 	}
 
 	public SortedMap<Range, List<Annotation>> apply(Iterable<Annotation> from) {
-		return Functions.compose(new Indexer(from), new Partitioning(partitioningFilter)).apply(from);
+		final Partitioning partitioning = new Partitioning(partitioningFilter);
+		if (sweeping) {
+			return new SweepingIndexer(from).apply(partitioning.partition(from));
+		}
+		return Functions.compose(new Indexer(from), partitioning).apply(from);
 	}
 
+	/**
+	 * Looks up the range annotations overlapping with each segment of a
+	 * partitioning in an {@link IntervalIndex}.
+	 * 
+	 * <p/>
+	 * 
+	 * Empty range annotations are only indexed for the segment starting at
+	 * their offset; they are looked up separately as the only annotations
+	 * contained in the empty range at the start of a segment.
+	 */
 	private static class Indexer implements Function<SortedSet<Range>, SortedMap<Range, List<Annotation>>> {
 
 		private final Iterable<? extends Annotation> entries;
@@ -90,28 +136,148 @@ public class OverlapIndexer implements Function<Iterable<Annotation>, SortedMap<
 		}
 
 		public SortedMap<Range, List<Annotation>> apply(SortedSet<Range> from) {
-			List<Annotation> annotations = Lists.newArrayList(entries);
+			final List<Annotation> annotations = Lists.newArrayList(entries);
+			final int size = annotations.size();
+			final int[] starts = new int[size];
+			final int[] ends = new int[size];
+			for (int ac = 0; ac < size; ac++) {
+				final Range range = annotations.get(ac).getRange();
+				starts[ac] = range.getStart();
+				ends[ac] = range.getEnd();
+			}
+			final IntervalIndex intervals = new IntervalIndex(starts, ends, size);
+
+			final SortedMap<Range, List<Annotation>> index = new TreeMap<Range, List<Annotation>>();
+			for (Range segment : from) {
+				final int[] overlapping = intervals.overlapping(segment.getStart(), segment.getEnd());
+				final int[] empty = intervals.containedIn(segment.getStart(), segment.getStart());
+
+				final List<Annotation> segmentAnnotations = new ArrayList<Annotation>(overlapping.length
+						+ empty.length);
+				for (int oc = 0, ec = 0; oc < overlapping.length || ec < empty.length;) {
+					if (ec == empty.length || (oc < overlapping.length && overlapping[oc] < empty[ec])) {
+						final int position = overlapping[oc++];
+						if (starts[position] < ends[position]) {
+							segmentAnnotations.add(annotations.get(position));
+						}
+					} else {
+						segmentAnnotations.add(annotations.get(empty[ec++]));
+					}
+				}
+				index.put(segment, segmentAnnotations);
+			}
+
+			return index;
+		}
+
+	}
+
+	/**
+	 * Sweeps over the segments of a partitioning in order, adding range
+	 * annotations to the active set as soon as they start before the end of
+	 * the current segment and evicting them once they end at or before its
+	 * start.
+	 * 
+	 * <p/>
+	 * 
+	 * The annotations are kept in the order of the original input, so the
+	 * resulting index equals the one built by {@link Indexer}. As segments of a
+	 * partitioning are never empty, empty range annotations are only indexed
+	 * for the segment starting at their offset.
+	 */
+	private static class SweepingIndexer implements Function<Iterable<Range>, SortedMap<Range, List<Annotation>>> {
+
+		private final Iterable<? extends Annotation> entries;
+
+		private SweepingIndexer(Iterable<? extends Annotation> entries) {
+			this.entries = entries;
+		}
+
+		public SortedMap<Range, List<Annotation>> apply(Iterable<Range> from) {
+			final List<Entry> pending = new ArrayList<Entry>();
+			for (Annotation annotation : entries) {
+				pending.add(new Entry(pending.size(), annotation));
+			}
+			Collections.sort(pending, Entry.START_ORDERING);
+
 			final SortedMap<Range, List<Annotation>> index = new TreeMap<Range, List<Annotation>>();
+			final SortedSet<Entry> active = new TreeSet<Entry>();
+			final PriorityQueue<Entry> ending = new PriorityQueue<Entry>(11, Entry.END_ORDERING);
+			final List<Entry> empty = new ArrayList<Entry>();
 
+			final Iterator<Entry> pendingIt = pending.iterator();
+			Entry next = (pendingIt.hasNext() ? pendingIt.next() : null);
 			for (Range segment : from) {
-				ArrayList<Annotation> overlapping = new ArrayList<Annotation>();
-				for (Iterator<Annotation> annotationIt = annotations.iterator(); annotationIt.hasNext();) {
-					Annotation annotation = annotationIt.next();
-					Range tr = annotation.getRange();
+				final int start = segment.getStart();
+				final int end = segment.getEnd();
 
-					if (tr.hasOverlapWith(segment) || tr.getStart() == segment.getStart()) {
-						overlapping.add(annotation);
+				while (next != null && next.start < end) {
+					if (next.start < next.end) {
+						active.add(next);
+						ending.add(next);
+					} else if (next.start == start) {
+						empty.add(next);
 					}
+					next = (pendingIt.hasNext() ? pendingIt.next() : null);
+				}
+				while (!ending.isEmpty() && ending.peek().end <= start) {
+					active.remove(ending.poll());
+				}
 
-					if (tr.precedes(segment)) {
-						annotationIt.remove();
+				final List<Annotation> overlapping = new ArrayList<Annotation>(active.size() + empty.size());
+				if (empty.isEmpty()) {
+					for (Entry entry : active) {
+						overlapping.add(entry.annotation);
+					}
+				} else {
+					final SortedSet<Entry> segmentEntries = new TreeSet<Entry>(active);
+					segmentEntries.addAll(empty);
+					for (Entry entry : segmentEntries) {
+						overlapping.add(entry.annotation);
 					}
+					empty.clear();
 				}
 				index.put(segment, overlapping);
 			}
 
 			return index;
 		}
+	}
+
+	/**
+	 * A range annotation along with its position in the input and its
+	 * offsets; naturally ordered by position.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private static final Comparator<Entry> START_ORDERING = new Comparator<Entry>() {
+
+			public int compare(Entry o1, Entry o2) {
+				return (o1.start == o2.start ? o1.order - o2.order : o1.start - o2.start);
+			}
+		};
 
+		private static final Comparator<Entry> END_ORDERING = new Comparator<Entry>() {
+
+			public int compare(Entry o1, Entry o2) {
+				return o1.end - o2.end;
+			}
+		};
+
+		private final int order;
+		private final Annotation annotation;
+		private final int start;
+		private final int end;
+
+		private Entry(int order, Annotation annotation) {
+			final Range range = annotation.getRange();
+			this.order = order;
+			this.annotation = annotation;
+			this.start = range.getStart();
+			this.end = range.getEnd();
+		}
+
+		public int compareTo(Entry o) {
+			return order - o.order;
+		}
 	}
 }
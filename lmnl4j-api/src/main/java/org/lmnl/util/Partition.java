@@ -0,0 +1,184 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.lmnl.Range;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A compact, immutable sequence of non-overlapping segments as computed by a
+ * {@link Partitioning partitioning}.
+ * 
+ * <p/>
+ * 
+ * As the segments of a partitioning strictly follow each other, they are
+ * stored as a sorted array of distinct boundary offsets, segment <i>i</i>
+ * spanning from boundary <i>i</i> to boundary <i>i + 1</i>. {@link Range}
+ * objects are only created on demand, e.g. when iterating over the segments.
+ * 
+ */
+public class Partition implements Iterable<Range> {
+	private final int[] boundaries;
+	private final int boundaryCount;
+
+	/**
+	 * Creates a partition from the given boundary offsets.
+	 * 
+	 * @param boundaries
+	 *                sorted, distinct boundary offsets; the array is not
+	 *                copied
+	 * @param boundaryCount
+	 *                the number of valid boundaries at the start of the
+	 *                array
+	 */
+	Partition(int[] boundaries, int boundaryCount) {
+		this.boundaries = boundaries;
+		this.boundaryCount = boundaryCount;
+	}
+
+	/**
+	 * The number of segments.
+	 * 
+	 * @return the number of segments, which is zero for empty partitions
+	 */
+	public int size() {
+		return (boundaryCount < 2 ? 0 : boundaryCount - 1);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int getStart(int segment) {
+		checkSegment(segment);
+		return boundaries[segment];
+	}
+
+	public int getEnd(int segment) {
+		checkSegment(segment);
+		return boundaries[segment + 1];
+	}
+
+	/**
+	 * Creates a range addressing the given segment.
+	 * 
+	 * @param segment
+	 *                the index of the segment
+	 * @return a new range object
+	 */
+	public Range get(int segment) {
+		checkSegment(segment);
+		return new Range(boundaries[segment], boundaries[segment + 1]);
+	}
+
+	/**
+	 * Looks up the segment containing the character at the given offset.
+	 * 
+	 * @param offset
+	 *                a text offset
+	 * @return the index of the segment, or <code>-1</code> if the offset
+	 *         lies outside of the partitioned text segment
+	 */
+	public int indexOf(int offset) {
+		int low = 0;
+		int high = boundaryCount - 1;
+		if (high < 1 || offset < boundaries[low] || offset >= boundaries[high]) {
+			return -1;
+		}
+		while (high - low > 1) {
+			final int mid = (low + high) >>> 1;
+			if (boundaries[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return a copy of the segments' start offsets
+	 */
+	public int[] getStarts() {
+		final int[] starts = new int[size()];
+		System.arraycopy(boundaries, 0, starts, 0, starts.length);
+		return starts;
+	}
+
+	/**
+	 * @return a copy of the segments' end offsets
+	 */
+	public int[] getEnds() {
+		final int[] ends = new int[size()];
+		System.arraycopy(boundaries, 1, ends, 0, ends.length);
+		return ends;
+	}
+
+	public Iterator<Range> iterator() {
+		return new Iterator<Range>() {
+			private int segment = 0;
+
+			public boolean hasNext() {
+				return segment < size();
+			}
+
+			public Range next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return get(segment++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Converts this partition into a set of ranges.
+	 * 
+	 * @return a new, mutable set containing a range object per segment
+	 */
+	public SortedSet<Range> toSortedSet() {
+		final SortedSet<Range> segments = new TreeSet<Range>();
+		for (Range segment : this) {
+			segments.add(segment);
+		}
+		return segments;
+	}
+
+	@Override
+	public String toString() {
+		return toSortedSet().toString();
+	}
+
+	private void checkSegment(int segment) {
+		Preconditions.checkElementIndex(segment, size());
+	}
+}
@@ -21,8 +21,9 @@
 
 package org.lmnl.util;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.lmnl.Annotation;
 import org.lmnl.Range;
@@ -30,7 +31,6 @@ import org.lmnl.Range;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 
 /**
  * Function deriving a set of non-overlapping segments from an (optionally
@@ -48,6 +48,13 @@ import com.google.common.collect.Sets;
  * overlapping range annotations} or the construction of new, non-overlapping
  * range annotations according to the partitioning.
  * 
+ * <p/>
+ * 
+ * The boundaries are collected in a primitive array, which is sorted and freed
+ * of duplicates in place, so no offsets have to be boxed. The resulting
+ * {@link Partition} can be used directly; {@link #apply(Iterable)} converts it
+ * into a set of ranges.
+ * 
  * @author <a href="http://gregor.middell.net/"
  *         title="Homepage of Gregor Middell">Gregor Middell</a>
  * 
@@ -79,26 +86,44 @@ public class Partitioning implements Function<Iterable<Annotation>, SortedSet<Ra
 	}
 
 	public SortedSet<Range> apply(Iterable<Annotation> from) {
-		SortedSet<Integer> offsets = Sets.newTreeSet();
+		return partition(from).toSortedSet();
+	}
+
+	/**
+	 * Partitions the text segment covered by the given range annotations.
+	 * 
+	 * @param from
+	 *                the range annotations, subject to filtering
+	 * @return the partition derived from their range boundaries
+	 */
+	public Partition partition(Iterable<Annotation> from) {
+		int[] offsets = new int[from instanceof Collection<?> ? Math.max(2, ((Collection<?>) from).size() * 2) : 64];
+		int count = 0;
 
 		if (filterPredicate != null) {
 			from = Iterables.filter(from, filterPredicate);
 		}
 
 		for (Annotation a : from) {
-			offsets.add(a.getRange().getStart());
-			offsets.add(a.getRange().getEnd());
+			if (count + 2 > offsets.length) {
+				final int[] grown = new int[offsets.length * 2];
+				System.arraycopy(offsets, 0, grown, 0, count);
+				offsets = grown;
+			}
+			final Range range = a.getRange();
+			offsets[count++] = range.getStart();
+			offsets[count++] = range.getEnd();
 		}
 
-		SortedSet<Range> partition = new TreeSet<Range>();
-		int start = -1;
-		for (int end : offsets) {
-			if (start >= 0) {
-				partition.add(new Range(start, end));
+		Arrays.sort(offsets, 0, count);
+
+		int distinct = 0;
+		for (int oc = 0; oc < count; oc++) {
+			if (distinct == 0 || offsets[distinct - 1] != offsets[oc]) {
+				offsets[distinct++] = offsets[oc];
 			}
-			start = end;
 		}
-		return partition;
+		return new Partition(offsets, distinct);
 	}
 
 }
@@ -0,0 +1,243 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.lmnl.Annotation;
+import org.lmnl.Range;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+/**
+ * Function lazily indexing range annotations based on a {@link Partitioning
+ * partitioning} of their covered text segment.
+ * 
+ * <p/>
+ * 
+ * Instead of building the complete index in memory like the
+ * {@link OverlapIndexer}, the resulting iterable yields pairs of segments and
+ * their overlapping range annotations one at a time, computing the segment
+ * boundaries on the fly during a single sweep over the input. The input has to
+ * be ordered by start offset, as returned by the
+ * {@link org.lmnl.AnnotationRepository annotation repository}. Memory usage is
+ * thus bounded by the maximum number of overlapping range annotations instead
+ * of the size of the text.
+ * 
+ * <p/>
+ * 
+ * For the same input, the yielded pairs equal the entries of the index built
+ * by an {@link OverlapIndexer} configured with the same partitioning filter.
+ * Every iteration sweeps over the input anew.
+ * 
+ */
+public class StreamingOverlapIndexer implements Function<Iterable<Annotation>, Iterable<Map.Entry<Range, List<Annotation>>>> {
+
+	private final Predicate<Annotation> partitioningFilter;
+
+	/**
+	 * Creates an indexing function, that fully partitions given range
+	 * annotation collections.
+	 * 
+	 * @see #StreamingOverlapIndexer(Predicate)
+	 */
+	public StreamingOverlapIndexer() {
+		this(null);
+	}
+
+	/**
+	 * Creates an indexing function with the given predicate determining the
+	 * subset of range annotations used for partitioning.
+	 * 
+	 * @param partitioningFilter
+	 *                the filter predicate used for determining the segments
+	 */
+	public StreamingOverlapIndexer(Predicate<Annotation> partitioningFilter) {
+		this.partitioningFilter = partitioningFilter;
+	}
+
+	public Iterable<Map.Entry<Range, List<Annotation>>> apply(final Iterable<Annotation> from) {
+		return new Iterable<Map.Entry<Range, List<Annotation>>>() {
+
+			public Iterator<Map.Entry<Range, List<Annotation>>> iterator() {
+				return new Sweep(from.iterator());
+			}
+		};
+	}
+
+	private class Sweep extends AbstractIterator<Map.Entry<Range, List<Annotation>>> {
+		private final Iterator<Annotation> input;
+		private final LinkedList<Entry> lookahead = new LinkedList<Entry>();
+
+		private final SortedSet<Entry> active = new TreeSet<Entry>();
+		private final PriorityQueue<Entry> ending = new PriorityQueue<Entry>(11, Entry.END_ORDERING);
+		private final PriorityQueue<Entry> boundaryEnding = new PriorityQueue<Entry>(11, Entry.END_ORDERING);
+		private final List<Entry> empty = new ArrayList<Entry>();
+
+		private int order = 0;
+		private int lastStart = 0;
+		private int position = -1;
+
+		private Sweep(Iterator<Annotation> input) {
+			this.input = input;
+		}
+
+		@Override
+		protected Map.Entry<Range, List<Annotation>> computeNext() {
+			if (position < 0) {
+				final Entry first = nextBoundary();
+				if (first == null) {
+					return endOfData();
+				}
+				position = first.start;
+			}
+
+			final Entry nextBoundary = nextBoundary();
+
+			while (!lookahead.isEmpty() && lookahead.getFirst().start <= position) {
+				admit(lookahead.removeFirst());
+			}
+			while (!ending.isEmpty() && ending.peek().end <= position) {
+				active.remove(ending.poll());
+			}
+			while (!boundaryEnding.isEmpty() && boundaryEnding.peek().end <= position) {
+				boundaryEnding.poll();
+			}
+
+			int end = (nextBoundary == null ? -1 : nextBoundary.start);
+			if (!boundaryEnding.isEmpty() && (end < 0 || boundaryEnding.peek().end < end)) {
+				end = boundaryEnding.peek().end;
+			}
+			if (end < 0) {
+				return endOfData();
+			}
+
+			while (!lookahead.isEmpty() && lookahead.getFirst().start < end) {
+				admit(lookahead.removeFirst());
+			}
+
+			final List<Annotation> overlapping = new ArrayList<Annotation>(active.size() + empty.size());
+			if (empty.isEmpty()) {
+				for (Entry entry : active) {
+					overlapping.add(entry.annotation);
+				}
+			} else {
+				final SortedSet<Entry> segmentEntries = new TreeSet<Entry>(active);
+				segmentEntries.addAll(empty);
+				for (Entry entry : segmentEntries) {
+					overlapping.add(entry.annotation);
+				}
+				empty.clear();
+			}
+
+			final Range segment = new Range(position, end);
+			position = end;
+			return Maps.immutableEntry(segment, overlapping);
+		}
+
+		/**
+		 * Reads ahead until the next range annotation contributing segment
+		 * boundaries and starting after the current position has been
+		 * buffered.
+		 * 
+		 * @return the buffered range annotation or <code>null</code> if
+		 *         there is none left
+		 */
+		private Entry nextBoundary() {
+			for (Entry entry : lookahead) {
+				if (entry.boundary && entry.start > position) {
+					return entry;
+				}
+			}
+			while (input.hasNext()) {
+				final Annotation annotation = input.next();
+				final Entry entry = new Entry(order++, annotation, partitioningFilter == null
+						|| partitioningFilter.apply(annotation));
+				if (entry.start < lastStart) {
+					throw new IllegalArgumentException("Range annotations not ordered by start offset: " + annotation);
+				}
+				lastStart = entry.start;
+				lookahead.add(entry);
+				if (entry.boundary && entry.start > position) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		private void admit(Entry entry) {
+			if (entry.start < entry.end) {
+				active.add(entry);
+				ending.add(entry);
+				if (entry.boundary) {
+					boundaryEnding.add(entry);
+				}
+			} else if (entry.start == position) {
+				empty.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * A range annotation along with its position in the input; naturally
+	 * ordered by position.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private static final Comparator<Entry> END_ORDERING = new Comparator<Entry>() {
+
+			public int compare(Entry o1, Entry o2) {
+				return o1.end - o2.end;
+			}
+		};
+
+		private final int order;
+		private final Annotation annotation;
+		private final int start;
+		private final int end;
+		private final boolean boundary;
+
+		private Entry(int order, Annotation annotation, boolean boundary) {
+			final Range range = annotation.getRange();
+			this.order = order;
+			this.annotation = annotation;
+			this.start = range.getStart();
+			this.end = range.getEnd();
+			this.boundary = boundary;
+		}
+
+		public int compareTo(Entry o) {
+			return order - o.order;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package org.lmnl.xml;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Tunes the number of entities per flush to meet a target flush time.
+ * 
+ * <p/>
+ * 
+ * After every flush, the time per entity is measured and the batch size
+ * needed to meet the target time is derived from it. The batch size then
+ * moves halfway towards that size, bounded by a minimum and a maximum, so
+ * single outliers do not make it oscillate. Independent of the batch size, a
+ * flush is due as soon as the estimated size of the pending entities exceeds
+ * a limit, which keeps documents with large attribute maps from exhausting
+ * the heap.
+ * 
+ * <p/>
+ * 
+ * The current batch size and flush statistics are exposed for monitoring.
+ */
+public class AdaptiveFlushPolicy implements FlushPolicy {
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final long targetFlushNanos;
+	private final long maxPendingBytes;
+
+	private final AtomicInteger batchSize;
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong flushedEntities = new AtomicLong();
+	private final AtomicLong flushedBytes = new AtomicLong();
+	private final AtomicLong flushNanos = new AtomicLong();
+	private final AtomicLong lastFlushNanos = new AtomicLong();
+	private final AtomicLong maxFlushNanos = new AtomicLong();
+
+	/**
+	 * Creates a policy targeting flushes of 100 ms, with batches of 100 to
+	 * 10000 entities and at most 16 MB pending.
+	 */
+	public AdaptiveFlushPolicy() {
+		this(100, 10000, 100, 16 * 1024 * 1024);
+	}
+
+	/**
+	 * @param minBatchSize
+	 *                the minimum number of entities per flush
+	 * @param maxBatchSize
+	 *                the maximum number of entities per flush
+	 * @param targetFlushMillis
+	 *                the time a flush should take, in milliseconds
+	 * @param maxPendingBytes
+	 *                the estimated size of pending entities in memory which
+	 *                triggers a flush regardless of their number
+	 */
+	public AdaptiveFlushPolicy(int minBatchSize, int maxBatchSize, long targetFlushMillis, long maxPendingBytes) {
+		Preconditions.checkArgument(minBatchSize > 0 && minBatchSize <= maxBatchSize);
+		Preconditions.checkArgument(targetFlushMillis > 0);
+		Preconditions.checkArgument(maxPendingBytes > 0);
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.targetFlushNanos = targetFlushMillis * 1000000;
+		this.maxPendingBytes = maxPendingBytes;
+		this.batchSize = new AtomicInteger(minBatchSize);
+	}
+
+	public boolean isFlushDue(int pendingEntities, long pendingBytes) {
+		return pendingEntities >= batchSize.get() || pendingBytes >= maxPendingBytes;
+	}
+
+	public void flushed(int entities, long bytes, long nanos) {
+		flushes.incrementAndGet();
+		flushedEntities.addAndGet(entities);
+		flushedBytes.addAndGet(bytes);
+		flushNanos.addAndGet(nanos);
+		lastFlushNanos.set(nanos);
+		for (long max = maxFlushNanos.get(); nanos > max; max = maxFlushNanos.get()) {
+			if (maxFlushNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+
+		if (entities == 0) {
+			return;
+		}
+		final double nanosPerEntity = Math.max(1, nanos) / (double) entities;
+		final double targetSize = targetFlushNanos / nanosPerEntity;
+		for (int current = batchSize.get();; current = batchSize.get()) {
+			final int tuned = (int) Math.max(minBatchSize, Math.min(maxBatchSize, (current + targetSize) / 2));
+			if (tuned == current || batchSize.compareAndSet(current, tuned)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * The number of entities currently flushed at once.
+	 */
+	public int getBatchSize() {
+		return batchSize.get();
+	}
+
+	public int getMinBatchSize() {
+		return minBatchSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getTargetFlushMillis() {
+		return targetFlushNanos / 1000000;
+	}
+
+	public long getMaxPendingBytes() {
+		return maxPendingBytes;
+	}
+
+	public long getFlushes() {
+		return flushes.get();
+	}
+
+	public long getFlushedEntities() {
+		return flushedEntities.get();
+	}
+
+	public long getFlushedBytes() {
+		return flushedBytes.get();
+	}
+
+	/**
+	 * The time spent flushing so far, in milliseconds.
+	 */
+	public long getFlushMillis() {
+		return flushNanos.get() / 1000000;
+	}
+
+	public long getLastFlushMillis() {
+		return lastFlushNanos.get() / 1000000;
+	}
+
+	public long getMaxFlushMillis() {
+		return maxFlushNanos.get() / 1000000;
+	}
+
+	/**
+	 * The mean time per flush so far, in milliseconds.
+	 */
+	public double getMeanFlushMillis() {
+		final long flushes = this.flushes.get();
+		return (flushes == 0 ? 0 : flushNanos.get() / (flushes * 1000000.0));
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("batchSize", getBatchSize()).add("flushes", getFlushes())
+				.add("entities", getFlushedEntities()).add("meanFlushMillis", getMeanFlushMillis()).toString();
+	}
+}
@@ -0,0 +1,123 @@
+package org.lmnl.xml;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.lmnl.QName;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable parser configuration, mapping element names to a bitmask of
+ * flags.
+ *
+ * <p/>
+ *
+ * All properties of a name are determined with a single lookup via
+ * {@link #getFlags(QName)}.
+ *
+ * @see SimpleXMLParserConfiguration#compile()
+ */
+public class CompiledXMLParserConfiguration implements XMLParserConfiguration {
+	public static final int LINE_ELEMENT = 1;
+	public static final int CONTAINER_ELEMENT = 2;
+	public static final int INCLUDED = 4;
+	public static final int EXCLUDED = 8;
+	public static final int NOTABLE = 16;
+
+	private final ImmutableMap<QName, Integer> flags;
+	private final char notableCharacter;
+	private final boolean compressingWhitespace;
+
+	CompiledXMLParserConfiguration(Set<QName> lineElements, Set<QName> containerElements, Set<QName> included,
+			Set<QName> excluded, Set<QName> notableElements, char notableCharacter, boolean compressingWhitespace) {
+		final Map<QName, Integer> flags = Maps.newHashMap();
+		addFlag(flags, lineElements, LINE_ELEMENT);
+		addFlag(flags, containerElements, CONTAINER_ELEMENT);
+		addFlag(flags, included, INCLUDED);
+		addFlag(flags, excluded, EXCLUDED);
+		addFlag(flags, notableElements, NOTABLE);
+		this.flags = ImmutableMap.copyOf(flags);
+		this.notableCharacter = notableCharacter;
+		this.compressingWhitespace = compressingWhitespace;
+	}
+
+	/**
+	 * Determines the flags of a name according to an arbitrary
+	 * configuration.
+	 *
+	 * @param configuration
+	 *                the configuration; compiled ones are queried with a
+	 *                single lookup
+	 * @param name
+	 *                the name
+	 * @return the bitmask of flags applying to the name
+	 */
+	public static int flagsOf(XMLParserConfiguration configuration, QName name) {
+		if (configuration instanceof CompiledXMLParserConfiguration) {
+			return ((CompiledXMLParserConfiguration) configuration).getFlags(name);
+		}
+		int flags = 0;
+		if (configuration.isLineElement(name)) {
+			flags |= LINE_ELEMENT;
+		}
+		if (configuration.isContainerElement(name)) {
+			flags |= CONTAINER_ELEMENT;
+		}
+		if (configuration.included(name)) {
+			flags |= INCLUDED;
+		}
+		if (configuration.excluded(name)) {
+			flags |= EXCLUDED;
+		}
+		if (configuration.isNotable(name)) {
+			flags |= NOTABLE;
+		}
+		return flags;
+	}
+
+	/**
+	 * @return the bitmask of flags applying to the name
+	 * @see #flagsOf(XMLParserConfiguration, QName)
+	 */
+	public int getFlags(QName name) {
+		final Integer nameFlags = flags.get(name);
+		return (nameFlags == null ? 0 : nameFlags);
+	}
+
+	public boolean isLineElement(QName name) {
+		return (getFlags(name) & LINE_ELEMENT) != 0;
+	}
+
+	public boolean isContainerElement(QName name) {
+		return (getFlags(name) & CONTAINER_ELEMENT) != 0;
+	}
+
+	public boolean included(QName name) {
+		return (getFlags(name) & INCLUDED) != 0;
+	}
+
+	public boolean excluded(QName name) {
+		return (getFlags(name) & EXCLUDED) != 0;
+	}
+
+	public boolean isNotable(QName name) {
+		return (getFlags(name) & NOTABLE) != 0;
+	}
+
+	public char getNotableCharacter() {
+		return notableCharacter;
+	}
+
+	public boolean isCompressingWhitespace() {
+		return compressingWhitespace;
+	}
+
+	private static void addFlag(Map<QName, Integer> flags, Set<QName> names, int flag) {
+		for (QName name : names) {
+			final Integer nameFlags = flags.get(name);
+			flags.put(name, (nameFlags == null ? flag : nameFlags | flag));
+		}
+	}
+}
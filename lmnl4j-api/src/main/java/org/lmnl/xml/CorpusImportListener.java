@@ -0,0 +1,20 @@
+package org.lmnl.xml;
+
+import javax.xml.transform.Source;
+
+import org.lmnl.Text;
+
+/**
+ * Receives progress notifications from a {@link CorpusImporter}.
+ * 
+ * <p/>
+ * 
+ * Notifications are delivered sequentially in the thread which started the
+ * import, in order of completion.
+ */
+public interface CorpusImportListener {
+
+	void imported(Source source, Text text, int completed, int total);
+
+	void failed(Source source, Throwable cause, int completed, int total);
+}
@@ -0,0 +1,153 @@
+package org.lmnl.xml;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Source;
+
+import org.lmnl.Text;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Imports a corpus of XML documents concurrently.
+ *
+ * <p/>
+ *
+ * Each document is imported by a separate call to the configured
+ * {@link XMLImporter}, on a bounded pool of worker threads. Transaction
+ * boundaries are those of the importer, so a transactional importer yields
+ * one transaction per document, and failing documents do not affect the
+ * others.
+ */
+public class CorpusImporter {
+	private XMLImporter importer;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	public void setImporter(XMLImporter importer) {
+		this.importer = importer;
+	}
+
+	/**
+	 * Sets the number of documents imported concurrently.
+	 *
+	 * @param threads
+	 *                the size of the worker pool; defaults to the number of
+	 *                available processors
+	 */
+	public void setThreads(int threads) {
+		Preconditions.checkArgument(threads > 0);
+		this.threads = threads;
+	}
+
+	/**
+	 * Imports the given documents and waits for all of them to be processed.
+	 *
+	 * @param sources
+	 *                the documents
+	 * @param configuration
+	 *                the parser configuration applied to all documents
+	 * @param listener
+	 *                notified about progress; may be <code>null</code>
+	 * @return a report about imported and failed documents
+	 * @throws InterruptedException
+	 *                 if interrupted while waiting; pending imports are
+	 *                 cancelled then
+	 */
+	public Report importCorpus(Iterable<Source> sources, final XMLParserConfiguration configuration,
+			CorpusImportListener listener) throws InterruptedException {
+		Preconditions.checkState(importer != null, "No importer configured");
+
+		final long start = System.currentTimeMillis();
+		final List<Source> pending = Lists.newArrayList(sources);
+		final Report report = new Report(pending.size());
+		if (pending.isEmpty()) {
+			return report;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()));
+		try {
+			final CompletionService<Text> completionService = new ExecutorCompletionService<Text>(executor);
+			final Map<Future<Text>, Source> submitted = Maps.newHashMap();
+			for (final Source source : pending) {
+				submitted.put(completionService.submit(new Callable<Text>() {
+
+					public Text call() throws Exception {
+						return importer.importXML(source, configuration);
+					}
+				}), source);
+			}
+
+			for (int completed = 1; completed <= report.total; completed++) {
+				final Future<Text> result = completionService.take();
+				final Source source = submitted.remove(result);
+				try {
+					final Text text = result.get();
+					report.imported.put(source, text);
+					if (listener != null) {
+						listener.imported(source, text, completed, report.total);
+					}
+				} catch (ExecutionException e) {
+					report.failures.put(source, e.getCause());
+					if (listener != null) {
+						listener.failed(source, e.getCause(), completed, report.total);
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			report.duration = System.currentTimeMillis() - start;
+		}
+		return report;
+	}
+
+	/**
+	 * The outcome of a corpus import.
+	 */
+	public static class Report {
+		private final int total;
+		private final Map<Source, Text> imported = Maps.newLinkedHashMap();
+		private final Map<Source, Throwable> failures = Maps.newLinkedHashMap();
+		private long duration;
+
+		private Report(int total) {
+			this.total = total;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * The texts parsed from successfully imported documents, in order of
+		 * completion.
+		 */
+		public Map<Source, Text> getImported() {
+			return Collections.unmodifiableMap(imported);
+		}
+
+		/**
+		 * The causes of failed imports, in order of completion.
+		 */
+		public Map<Source, Throwable> getFailures() {
+			return Collections.unmodifiableMap(failures);
+		}
+
+		/**
+		 * The time the import took in milliseconds.
+		 */
+		public long getDuration() {
+			return duration;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package org.lmnl.xml;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Flushes after a fixed number of entities.
+ */
+public class FixedFlushPolicy implements FlushPolicy {
+	private final int batchSize;
+
+	public FixedFlushPolicy(int batchSize) {
+		Preconditions.checkArgument(batchSize > 0);
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public boolean isFlushDue(int pendingEntities, long pendingBytes) {
+		return pendingEntities >= batchSize;
+	}
+
+	public void flushed(int entities, long bytes, long nanos) {
+	}
+}
@@ -0,0 +1,38 @@
+package org.lmnl.xml;
+
+/**
+ * Decides when entities generated by an {@link XMLParser} are flushed to the
+ * underlying store.
+ * 
+ * <p/>
+ * 
+ * Each parse run keeps track of the entities pending since its last flush and
+ * of their estimated size in memory; it asks the policy after every XML event
+ * whether to flush and reports the time every flush took. Policies may be
+ * shared by concurrent parse runs and have to be thread-safe.
+ */
+public interface FlushPolicy {
+
+	/**
+	 * Determines whether pending entities have to be flushed.
+	 * 
+	 * @param pendingEntities
+	 *                the number of entities generated since the last flush
+	 * @param pendingBytes
+	 *                their estimated size in memory
+	 * @return <code>true</code> if a flush is due
+	 */
+	boolean isFlushDue(int pendingEntities, long pendingBytes);
+
+	/**
+	 * Records a completed flush.
+	 * 
+	 * @param entities
+	 *                the number of entities flushed
+	 * @param bytes
+	 *                their estimated size in memory
+	 * @param nanos
+	 *                the time the flush took, in nanoseconds
+	 */
+	void flushed(int entities, long bytes, long nanos);
+}
@@ -0,0 +1,202 @@
+package org.lmnl.xml;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+
+/**
+ * Encodes XML node paths, i.e. the sibling positions of a node and its
+ * ancestors (Dewey IDs), as compact, order-preserving byte keys.
+ *
+ * <p/>
+ *
+ * Each position is stored as a variable-length number whose first byte
+ * determines the length of its encoding:
+ *
+ * <ul>
+ * <li><code>0xxxxxx</code>: 6 bits in one byte</li>
+ * <li><code>10xxxxx</code>: 12 bits in two bytes</li>
+ * <li><code>110xxxx</code>: 18 bits in three bytes</li>
+ * <li><code>1110xxx</code>: 24 bits in four bytes</li>
+ * <li><code>11110xx</code>: 30 bits in five bytes</li>
+ * </ul>
+ *
+ * Only the lower seven bits of every byte are used, so keys compare the same
+ * whether a database treats bytes as signed or unsigned. Comparing two keys
+ * byte by byte yields the document order of the respective nodes; the key of
+ * a node is a prefix of the keys of all its descendants, which are thus
+ * located between the key of the node and its {@link #upperBound(byte[])
+ * upper bound}.
+ */
+public class NodePath {
+	private static final byte UPPER_BOUND = 0x7f;
+
+	private NodePath() {
+	}
+
+	/**
+	 * Encodes a node path.
+	 *
+	 * @param path
+	 *                the sibling positions, outermost first; each between 0
+	 *                and 2<sup>30</sup> - 1
+	 * @return the key
+	 */
+	public static byte[] encode(Iterable<Integer> path) {
+		int length = 0;
+		for (int position : path) {
+			length += length(position);
+		}
+		final byte[] key = new byte[length];
+		int offset = 0;
+		for (int position : path) {
+			offset = write(key, offset, position);
+		}
+		return key;
+	}
+
+	public static byte[] encode(int... path) {
+		return encode(Ints.asList(path));
+	}
+
+	/**
+	 * Decodes a node path.
+	 *
+	 * @param key
+	 *                the key
+	 * @return the sibling positions, outermost first
+	 */
+	public static int[] decode(byte[] key) {
+		final int[] path = new int[depth(key)];
+		for (int offset = 0, pc = 0; offset < key.length; pc++) {
+			final int length = length(key[offset]);
+			int position = key[offset] & (0x7f >> length);
+			for (int bc = 1; bc < length; bc++) {
+				position = (position << 7) | key[offset + bc];
+			}
+			path[pc] = position;
+			offset += length;
+		}
+		return path;
+	}
+
+	/**
+	 * Determines the number of positions in a node path, i.e. the depth of
+	 * the node.
+	 */
+	public static int depth(byte[] key) {
+		int depth = 0;
+		for (int offset = 0; offset < key.length; offset += length(key[offset])) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * Determines the keys of all ancestors of a node.
+	 *
+	 * @return the keys of the ancestors, outermost first
+	 */
+	public static byte[][] ancestors(byte[] key) {
+		final byte[][] ancestors = new byte[Math.max(0, depth(key) - 1)][];
+		for (int offset = 0, ac = 0; ac < ancestors.length; ac++) {
+			offset += length(key[offset]);
+			ancestors[ac] = copy(key, offset);
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Determines the key of a node's parent.
+	 *
+	 * @return the key of the parent, empty for top-level nodes;
+	 *         <code>null</code> for the empty key
+	 */
+	public static byte[] parent(byte[] key) {
+		int parentLength = -1;
+		for (int offset = 0; offset < key.length; offset += length(key[offset])) {
+			parentLength = offset;
+		}
+		return (parentLength < 0 ? null : copy(key, parentLength));
+	}
+
+	/**
+	 * Determines a key greater than the keys of a node and all its
+	 * descendants, but less than the key of any following node.
+	 */
+	public static byte[] upperBound(byte[] key) {
+		final byte[] upperBound = copy(key, key.length + 1);
+		upperBound[key.length] = UPPER_BOUND;
+		return upperBound;
+	}
+
+	/**
+	 * Compares keys in document order.
+	 */
+	public static int compare(byte[] a, byte[] b) {
+		final int length = Math.min(a.length, b.length);
+		for (int bc = 0; bc < length; bc++) {
+			if (a[bc] != b[bc]) {
+				return a[bc] - b[bc];
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * Formats a key as a dotted list of sibling positions.
+	 */
+	public static String toString(byte[] key) {
+		final StringBuilder str = new StringBuilder();
+		for (int position : decode(key)) {
+			if (str.length() > 0) {
+				str.append('.');
+			}
+			str.append(position);
+		}
+		return str.toString();
+	}
+
+	private static int length(int position) {
+		Preconditions.checkArgument(position >= 0, Integer.toString(position));
+		if (position < (1 << 6)) {
+			return 1;
+		} else if (position < (1 << 12)) {
+			return 2;
+		} else if (position < (1 << 18)) {
+			return 3;
+		} else if (position < (1 << 24)) {
+			return 4;
+		}
+		Preconditions.checkArgument(position < (1 << 30), Integer.toString(position));
+		return 5;
+	}
+
+	private static int length(byte first) {
+		if ((first & 0x40) == 0) {
+			return 1;
+		} else if ((first & 0x20) == 0) {
+			return 2;
+		} else if ((first & 0x10) == 0) {
+			return 3;
+		} else if ((first & 0x08) == 0) {
+			return 4;
+		}
+		return 5;
+	}
+
+	private static byte[] copy(byte[] key, int length) {
+		final byte[] copy = new byte[length];
+		System.arraycopy(key, 0, copy, 0, Math.min(key.length, length));
+		return copy;
+	}
+
+	private static int write(byte[] key, int offset, int position) {
+		final int length = length(position);
+		for (int bc = length - 1; bc > 0; bc--) {
+			key[offset + bc] = (byte) (position & 0x7f);
+			position >>>= 7;
+		}
+		key[offset] = (byte) (((0x7f << (7 - length + 1)) & 0x7f) | position);
+		return offset + length;
+	}
+}
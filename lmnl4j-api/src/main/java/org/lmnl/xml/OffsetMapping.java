@@ -0,0 +1,215 @@
+package org.lmnl.xml;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.lmnl.Range;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+/**
+ * Maps offsets in a parsed text to offsets in its XML source and vice versa.
+ *
+ * <p/>
+ *
+ * The mapping consists of a sequence of deltas, each relating a text range
+ * to the source range it has been parsed from. Deltas are kept in parallel
+ * arrays of start and end offsets, ordered by both text and source offsets,
+ * so translating an offset takes a binary search over the deltas.
+ */
+public class OffsetMapping implements Serializable, Iterable<Map.Entry<Range, Range>> {
+	private static final long serialVersionUID = 1L;
+
+	private final int[] textStarts;
+	private final int[] textEnds;
+	private final int[] sourceStarts;
+	private final int[] sourceEnds;
+	private final int size;
+
+	private OffsetMapping(int[] textStarts, int[] textEnds, int[] sourceStarts, int[] sourceEnds, int size) {
+		this.textStarts = textStarts;
+		this.textEnds = textEnds;
+		this.sourceStarts = sourceStarts;
+		this.sourceEnds = sourceEnds;
+		this.size = size;
+	}
+
+	/**
+	 * The number of deltas in this mapping.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Range getTextRange(int index) {
+		Preconditions.checkElementIndex(index, size);
+		return new Range(textStarts[index], textEnds[index]);
+	}
+
+	public Range getSourceRange(int index) {
+		Preconditions.checkElementIndex(index, size);
+		return new Range(sourceStarts[index], sourceEnds[index]);
+	}
+
+	/**
+	 * Translates a text offset into the corresponding source offset.
+	 *
+	 * <p/>
+	 *
+	 * Offsets within a delta are translated relative to its start; offsets
+	 * beyond the end of the delta's source range are mapped to its end, e.g.
+	 * for text runs with compressed whitespace.
+	 *
+	 * @param textOffset
+	 *                the offset in the text
+	 * @return the offset in the source; <code>-1</code> if the offset
+	 *         precedes all deltas
+	 */
+	public int toSource(int textOffset) {
+		return translate(textStarts, sourceStarts, sourceEnds, textOffset, false);
+	}
+
+	/**
+	 * Translates a source offset into the corresponding text offset.
+	 *
+	 * @param sourceOffset
+	 *                the offset in the source
+	 * @return the offset in the text; <code>-1</code> if the offset precedes
+	 *         all deltas
+	 * @see #toSource(int)
+	 */
+	public int toText(int sourceOffset) {
+		return translate(sourceStarts, textStarts, textEnds, sourceOffset, false);
+	}
+
+	/**
+	 * Translates a text range into the corresponding source range.
+	 *
+	 * <p/>
+	 *
+	 * The end offset is translated as an exclusive bound, i.e. relative to
+	 * the delta containing the last offset of the range.
+	 */
+	public Range toSource(Range textRange) {
+		final int start = textRange.getStart();
+		final int end = textRange.getEnd();
+		return new Range(toSource(start), (start == end ? toSource(end) : translate(textStarts,
+				sourceStarts, sourceEnds, end, true)));
+	}
+
+	/**
+	 * Translates a source range into the corresponding text range.
+	 *
+	 * @see #toSource(Range)
+	 */
+	public Range toText(Range sourceRange) {
+		final int start = sourceRange.getStart();
+		final int end = sourceRange.getEnd();
+		return new Range(toText(start), (start == end ? toText(end) : translate(sourceStarts,
+				textStarts, textEnds, end, true)));
+	}
+
+	/**
+	 * Iterates over the deltas as pairs of text and source ranges.
+	 */
+	public Iterator<Map.Entry<Range, Range>> iterator() {
+		return new AbstractIterator<Map.Entry<Range, Range>>() {
+			private int index = 0;
+
+			@Override
+			protected Map.Entry<Range, Range> computeNext() {
+				if (index >= size) {
+					return endOfData();
+				}
+				final Map.Entry<Range, Range> delta = Maps.immutableEntry(getTextRange(index), getSourceRange(index));
+				index++;
+				return delta;
+			}
+		};
+	}
+
+	private int translate(int[] fromStarts, int[] toStarts, int[] toEnds, int offset,
+			boolean exclusive) {
+		final int index = floor(fromStarts, offset, exclusive);
+		if (index < 0) {
+			return -1;
+		}
+		return toStarts[index] + Math.min(offset - fromStarts[index], toEnds[index] - toStarts[index]);
+	}
+
+	/**
+	 * Finds the last delta starting at or before the given offset; strictly
+	 * before it, if the offset is an exclusive bound.
+	 */
+	private int floor(int[] starts, int offset, boolean exclusive) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (exclusive ? starts[mid] >= offset : starts[mid] > offset) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Collects deltas in text and source order.
+	 */
+	public static class Builder {
+		private int[] textStarts = new int[64];
+		private int[] textEnds = new int[64];
+		private int[] sourceStarts = new int[64];
+		private int[] sourceEnds = new int[64];
+		private int size = 0;
+
+		/**
+		 * Adds a delta.
+		 *
+		 * @param textRange
+		 *                the text range, not starting before the previous
+		 *                one
+		 * @param sourceRange
+		 *                the source range, not starting before the previous
+		 *                one
+		 * @return this builder
+		 */
+		public Builder add(Range textRange, Range sourceRange) {
+			Preconditions.checkArgument(size == 0 || textRange.getStart() >= textStarts[size - 1], textRange);
+			Preconditions.checkArgument(size == 0 || sourceRange.getStart() >= sourceStarts[size - 1], sourceRange);
+			if (size == textStarts.length) {
+				textStarts = grow(textStarts);
+				textEnds = grow(textEnds);
+				sourceStarts = grow(sourceStarts);
+				sourceEnds = grow(sourceEnds);
+			}
+			textStarts[size] = textRange.getStart();
+			textEnds[size] = textRange.getEnd();
+			sourceStarts[size] = sourceRange.getStart();
+			sourceEnds[size] = sourceRange.getEnd();
+			size++;
+			return this;
+		}
+
+		public OffsetMapping build() {
+			return new OffsetMapping(trim(textStarts), trim(textEnds), trim(sourceStarts), trim(sourceEnds), size);
+		}
+
+		private int[] grow(int[] values) {
+			final int[] grown = new int[values.length * 2];
+			System.arraycopy(values, 0, grown, 0, size);
+			return grown;
+		}
+
+		private int[] trim(int[] values) {
+			final int[] trimmed = new int[size];
+			System.arraycopy(values, 0, trimmed, 0, size);
+			return trimmed;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package org.lmnl.xml;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Interns qualified names by their namespace and local name as reported by
+ * an XML stream reader.
+ *
+ * <p/>
+ *
+ * Names are looked up via open addressing on the given strings, so repeated
+ * names neither allocate new {@link QName} instances nor have their namespace
+ * URI parsed again. Not thread-safe; meant to be used per parse run.
+ */
+class QNameTable {
+	private final Map<String, URI> namespaces = Maps.newHashMap();
+
+	private String[] namespaceKeys;
+	private String[] localNameKeys;
+	private QName[] names;
+	private int size = 0;
+
+	QNameTable() {
+		this(64);
+	}
+
+	QNameTable(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Yields the canonical name for the given namespace and local name.
+	 *
+	 * @param namespace
+	 *                the namespace URI; <code>null</code> or empty for
+	 *                names without a namespace
+	 * @param localName
+	 *                the local name
+	 * @return the interned name
+	 */
+	QName get(String namespace, String localName) {
+		if (namespace == null) {
+			namespace = "";
+		}
+		final int mask = names.length - 1;
+		int slot = hash(namespace, localName) & mask;
+		while (names[slot] != null) {
+			if (equal(localNameKeys[slot], localName) && equal(namespaceKeys[slot], namespace)) {
+				return names[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		final QName name = new QNameImpl(namespace(namespace), localName);
+		namespaceKeys[slot] = namespace;
+		localNameKeys[slot] = localName;
+		names[slot] = name;
+		if (++size * 2 > names.length) {
+			rehash();
+		}
+		return name;
+	}
+
+	private URI namespace(String namespace) {
+		if (namespace.length() == 0) {
+			return null;
+		}
+		URI uri = namespaces.get(namespace);
+		if (uri == null) {
+			namespaces.put(namespace, uri = URI.create(namespace));
+		}
+		return uri;
+	}
+
+	private void rehash() {
+		final String[] oldNamespaceKeys = namespaceKeys;
+		final String[] oldLocalNameKeys = localNameKeys;
+		final QName[] oldNames = names;
+
+		allocate(oldNames.length * 2);
+		final int mask = names.length - 1;
+		for (int oc = 0; oc < oldNames.length; oc++) {
+			if (oldNames[oc] == null) {
+				continue;
+			}
+			int slot = hash(oldNamespaceKeys[oc], oldLocalNameKeys[oc]) & mask;
+			while (names[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			namespaceKeys[slot] = oldNamespaceKeys[oc];
+			localNameKeys[slot] = oldLocalNameKeys[oc];
+			names[slot] = oldNames[oc];
+		}
+	}
+
+	private void allocate(int capacity) {
+		namespaceKeys = new String[capacity];
+		localNameKeys = new String[capacity];
+		names = new QName[capacity];
+	}
+
+	private static int hash(String namespace, String localName) {
+		final int h = namespace.hashCode() * 31 + localName.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equal(String a, String b) {
+		// stream readers usually intern names, so identity is checked first
+		return (a == b) || a.equals(b);
+	}
+}
@@ -83,4 +83,15 @@ public class SimpleXMLParserConfiguration implements XMLParserConfiguration {
 	public void setCompressingWhitespace(boolean compressingWhitespace) {
 		this.compressingWhitespace = compressingWhitespace;
 	}
+
+	/**
+	 * Freezes this configuration into one, which determines all properties
+	 * of an element name with a single lookup.
+	 * 
+	 * @return an immutable copy of this configuration
+	 */
+	public CompiledXMLParserConfiguration compile() {
+		return new CompiledXMLParserConfiguration(lineElements, containerElements, included, excluded,
+				notableElements, notableCharacter, compressingWhitespace);
+	}
 }
@@ -0,0 +1,237 @@
+package org.lmnl.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * Accumulates text in chunks of characters.
+ *
+ * <p/>
+ *
+ * Up to a given threshold, the text is held in character arrays; beyond it,
+ * it is moved to a memory-mapped temporary file. In both cases characters are
+ * stored as such, so neither appending nor reading the text involves
+ * encoding or decoding it.
+ */
+public class TextBuffer implements CharSequence {
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private static final int REGION_SHIFT = 20;
+	private static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+	private final int threshold;
+
+	private List<char[]> chunks = Lists.newArrayList();
+	private List<CharBuffer> regions;
+	private File file;
+	private RandomAccessFile fileAccess;
+
+	private int length = 0;
+
+	/**
+	 * Creates a buffer.
+	 *
+	 * @param threshold
+	 *                the number of characters held in memory before the
+	 *                buffer is moved to a memory-mapped file
+	 */
+	public TextBuffer(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public boolean isMapped() {
+		return (regions != null);
+	}
+
+	/**
+	 * The temporary file the text has been moved to, if any.
+	 */
+	File getFile() {
+		return file;
+	}
+
+	public char charAt(int index) {
+		Preconditions.checkElementIndex(index, length);
+		if (regions == null) {
+			return chunks.get(index >> CHUNK_SHIFT)[index & (CHUNK_SIZE - 1)];
+		} else {
+			return regions.get(index >> REGION_SHIFT).get(index & (REGION_SIZE - 1));
+		}
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		Preconditions.checkPositionIndexes(start, end, length);
+		final char[] copy = new char[end - start];
+		getChars(start, end, copy, 0);
+		return CharBuffer.wrap(copy);
+	}
+
+	/**
+	 * Copies characters from this buffer into an array.
+	 *
+	 * @see String#getChars(int, int, char[], int)
+	 */
+	public void getChars(int start, int end, char[] dst, int dstStart) {
+		Preconditions.checkPositionIndexes(start, end, length);
+		final int shift = (regions == null ? CHUNK_SHIFT : REGION_SHIFT);
+		final int size = 1 << shift;
+		while (start < end) {
+			final int offset = start & (size - 1);
+			final int copied = Math.min(end - start, size - offset);
+			if (regions == null) {
+				System.arraycopy(chunks.get(start >> shift), offset, dst, dstStart, copied);
+			} else {
+				final CharBuffer region = regions.get(start >> shift).duplicate();
+				region.position(offset);
+				region.get(dst, dstStart, copied);
+			}
+			start += copied;
+			dstStart += copied;
+		}
+	}
+
+	public TextBuffer append(char c) throws IOException {
+		ensureCapacity(1);
+		if (regions == null) {
+			chunks.get(length >> CHUNK_SHIFT)[length & (CHUNK_SIZE - 1)] = c;
+		} else {
+			regions.get(length >> REGION_SHIFT).put(length & (REGION_SIZE - 1), c);
+		}
+		length++;
+		return this;
+	}
+
+	public TextBuffer append(char[] cbuf, int offset, int len) throws IOException {
+		Preconditions.checkPositionIndexes(offset, offset + len, cbuf.length);
+		ensureCapacity(len);
+		final int shift = (regions == null ? CHUNK_SHIFT : REGION_SHIFT);
+		final int size = 1 << shift;
+		while (len > 0) {
+			final int chunkOffset = length & (size - 1);
+			final int copied = Math.min(len, size - chunkOffset);
+			if (regions == null) {
+				System.arraycopy(cbuf, offset, chunks.get(length >> shift), chunkOffset, copied);
+			} else {
+				final CharBuffer region = regions.get(length >> shift).duplicate();
+				region.position(chunkOffset);
+				region.put(cbuf, offset, copied);
+			}
+			offset += copied;
+			len -= copied;
+			length += copied;
+		}
+		return this;
+	}
+
+	/**
+	 * Yields a reader over the buffered text.
+	 *
+	 * <p/>
+	 *
+	 * The reader reflects the buffer's contents at the time of reading;
+	 * appending to the buffer while reading from it is not supported.
+	 */
+	public Reader reader() {
+		return new Reader() {
+			private int position = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (position >= length) {
+					return -1;
+				}
+				final int read = Math.min(len, length - position);
+				getChars(position, position + read, cbuf, off);
+				position += read;
+				return read;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				final int skipped = (int) Math.max(0, Math.min(n, length - position));
+				position += skipped;
+				return skipped;
+			}
+
+			@Override
+			public void close() throws IOException {
+			}
+		};
+	}
+
+	/**
+	 * Discards the buffered text and removes the temporary file it has
+	 * possibly been moved to.
+	 */
+	public void dispose() throws IOException {
+		chunks = Lists.newArrayList();
+		regions = null;
+		length = 0;
+		try {
+			if (fileAccess != null) {
+				fileAccess.close();
+			}
+		} finally {
+			fileAccess = null;
+			if (file != null) {
+				file.delete();
+				file = null;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		final char[] contents = new char[length];
+		getChars(0, length, contents, 0);
+		return new String(contents);
+	}
+
+	private void ensureCapacity(int len) throws IOException {
+		final int required = length + len;
+		if (regions == null && required > threshold) {
+			map();
+		}
+		if (regions == null) {
+			while (chunks.size() << CHUNK_SHIFT < required) {
+				chunks.add(new char[CHUNK_SIZE]);
+			}
+		} else {
+			while (((long) regions.size() << REGION_SHIFT) < required) {
+				final long position = ((long) regions.size() << REGION_SHIFT) * 2;
+				regions.add(fileAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE * 2)
+						.asCharBuffer());
+			}
+		}
+	}
+
+	private void map() throws IOException {
+		file = File.createTempFile(getClass().getName(), ".txt");
+		file.deleteOnExit();
+		fileAccess = new RandomAccessFile(file, "rw");
+
+		final List<char[]> buffered = chunks;
+		final int bufferedLength = length;
+
+		chunks = null;
+		regions = Lists.newArrayList();
+		length = 0;
+
+		for (int cc = 0; bufferedLength > 0 && cc <= ((bufferedLength - 1) >> CHUNK_SHIFT); cc++) {
+			append(buffered.get(cc), 0, Math.min(CHUNK_SIZE, bufferedLength - (cc << CHUNK_SHIFT)));
+		}
+	}
+}
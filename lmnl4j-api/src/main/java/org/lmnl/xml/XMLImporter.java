@@ -0,0 +1,33 @@
+package org.lmnl.xml;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+
+import org.lmnl.Text;
+
+/**
+ * Imports XML documents as a whole, i.e. loads their source and parses it
+ * into a new text.
+ */
+public interface XMLImporter {
+
+	/**
+	 * Imports a single XML document.
+	 * 
+	 * <p/>
+	 * 
+	 * Implementations must be safe for concurrent use with distinct
+	 * documents.
+	 * 
+	 * @param xml
+	 *                the XML document
+	 * @param configuration
+	 *                the parser configuration
+	 * @return the text parsed from the document
+	 */
+	Text importXML(Source xml, XMLParserConfiguration configuration) throws IOException, TransformerException,
+			XMLStreamException;
+}
@@ -4,10 +4,15 @@ import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -27,12 +32,32 @@ import org.lmnl.*;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
-import com.google.common.io.FileBackedOutputStream;
 
 public abstract class XMLParser {
 	public static final QName OFFSET_DELTA_NAME = new QNameImpl(Annotation.LMNL_NS_URI, "offset");
+
+	/**
+	 * Name of the attribute holding the dotted XML node path of an
+	 * annotation parsed by a {@link org.lmnl.rdbms.RelationalXMLParser}.
+	 *
+	 * @deprecated node paths are stored as {@link NodePath encoded} keys;
+	 *             the attribute will be dropped with the next release
+	 */
+	@Deprecated
 	public static final QName NODE_PATH_NAME = new QNameImpl(Annotation.LMNL_NS_URI, "xmlNode");
 
+	/**
+	 * The estimated size of an annotation in memory, excluding its
+	 * attributes.
+	 */
+	private static final int ANNOTATION_BYTES = 128;
+
+	/**
+	 * The estimated size of an attribute map entry in memory, excluding the
+	 * characters of its name and value.
+	 */
+	private static final int ATTRIBUTE_BYTES = 64;
+
 	private final TransformerFactory transformerFactory;
 	private final XMLInputFactory xmlInputFactory;
 
@@ -41,7 +66,8 @@ public abstract class XMLParser {
 	private Charset charset = Charset.forName("UTF-8");
 	private boolean removeLeadingWhitespace = true;
 	private int textBufferSize = 100000;
-	private int xmlEventBatchSize = 1000;
+	private FlushPolicy flushPolicy = new FixedFlushPolicy(1000);
+	private boolean compactOffsets = false;
 
 	public XMLParser() {
 		transformerFactory = TransformerFactory.newInstance();
@@ -67,31 +93,79 @@ public abstract class XMLParser {
 		this.textBufferSize = textBufferSize;
 	}
 
+	/**
+	 * Flushes generated entities whenever the given number of them is
+	 * pending.
+	 * 
+	 * <p/>
+	 * 
+	 * The semantics of this setting have changed: it used to count the XML
+	 * events read, whereas it now counts the generated entities, i.e.
+	 * annotations and offset deltas. Batch sizes tuned for the former
+	 * behaviour may have to be adjusted.
+	 * 
+	 * @deprecated use {@link #setFlushPolicy(FlushPolicy)} with a
+	 *             {@link FixedFlushPolicy}
+	 */
+	@Deprecated
 	public void setXmlEventBatchSize(int xmlEventBatchSize) {
-		this.xmlEventBatchSize = xmlEventBatchSize;
+		setFlushPolicy(new FixedFlushPolicy(xmlEventBatchSize));
+	}
+
+	/**
+	 * Determines when {@link #newXMLEventBatch(Session) batches} of generated
+	 * entities are flushed; defaults to a batch of 1000 entities.
+	 * 
+	 * @param flushPolicy
+	 *                the policy, shared by all parse runs of this parser
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = flushPolicy;
+	}
+
+	public FlushPolicy getFlushPolicy() {
+		return flushPolicy;
+	}
+
+	/**
+	 * Determines whether offset deltas between text and source are collected
+	 * into a single {@link OffsetMapping} instead of being reported one by
+	 * one.
+	 * 
+	 * @param compactOffsets
+	 *                <code>true</code> for {@link #newOffsetMapping(Session, OffsetMapping)},
+	 *                <code>false</code> for {@link #newOffsetDelta(Session, Range, Range)}
+	 */
+	public void setCompactOffsets(boolean compactOffsets) {
+		this.compactOffsets = compactOffsets;
 	}
 
 	public void load(Text text, Source xml) throws IOException, TransformerException {
 		File sourceContents = File.createTempFile(getClass().getName(), ".xml");
 		sourceContents.deleteOnExit();
 
+		CountingWriter sourceContentWriter = null;
 		Reader sourceContentReader = null;
 
 		try {
-			final Transformer serializer = transformerFactory.newTransformer();
+			final Transformer serializer;
+			synchronized (transformerFactory) {
+				serializer = transformerFactory.newTransformer();
+			}
 			serializer.setOutputProperty(OutputKeys.METHOD, "xml");
 			serializer.setOutputProperty(OutputKeys.ENCODING, charset.name());
 			serializer.setOutputProperty(OutputKeys.INDENT, "no");
 			serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-			serializer.transform(xml, new StreamResult(sourceContents));
 
-			sourceContentReader = new InputStreamReader(new FileInputStream(sourceContents), charset);
-			final int sourceContentLength = contentLength(sourceContentReader);
-			sourceContentReader.close();
+			// count characters while serializing, so the contents have to be read only once
+			sourceContentWriter = new CountingWriter(new OutputStreamWriter(new FileOutputStream(sourceContents), charset));
+			serializer.transform(xml, new StreamResult(sourceContentWriter));
+			sourceContentWriter.close();
 
 			sourceContentReader = new InputStreamReader(new FileInputStream(sourceContents), charset);
-			updateText(text, sourceContentReader, sourceContentLength);
+			updateText(text, sourceContentReader, sourceContentWriter.getCount());
 		} finally {
+			Closeables.close(sourceContentWriter, false);
 			Closeables.close(sourceContentReader, false);
 			sourceContents.delete();
 		}
@@ -101,7 +175,7 @@ public abstract class XMLParser {
 			throws IOException, XMLStreamException {
 		Session session = null;
 		try {
-			session = new Session(source, target, configuration);
+			session = newSession(source, target, configuration);
 			textRepository.read(source, session);
 		} catch (Throwable t) {
 			Throwables.propagateIfInstanceOf(t, IOException.class);
@@ -119,22 +193,170 @@ public abstract class XMLParser {
 		textRepository.write(text, reader, contentLength);
 	}
 
-	protected abstract Annotation startAnnotation(Session session, QName name, Map<QName, String> attrs, int start,
+	/**
+	 * Creates an annotation for an XML node.
+	 * 
+	 * <p/>
+	 * 
+	 * The attributes are reused for the following nodes; implementations
+	 * keeping them have to {@link Attributes#toMap() copy} them.
+	 */
+	protected abstract Annotation startAnnotation(Session session, QName name, Attributes attributes, int start,
 			Iterable<Integer> nodePath);
 
-	protected abstract void endAnnotation(Annotation annotation, int end);
+	protected abstract void endAnnotation(Session session, Annotation annotation, int end);
 
 	protected abstract void newOffsetDelta(Session session, Range textRange, Range sourceRange);
 
-	protected void newXMLEventBatch() {
+	/**
+	 * Receives all offset deltas of a parse run at its end, if
+	 * {@link #setCompactOffsets(boolean) compact offsets} are enabled.
+	 * 
+	 * <p/>
+	 * 
+	 * Reports the deltas one by one by default; to be overridden by
+	 * subclasses storing the mapping as a whole.
+	 */
+	protected void newOffsetMapping(Session session, OffsetMapping offsetMapping) {
+		for (Map.Entry<Range, Range> delta : offsetMapping) {
+			newOffsetDelta(session, delta.getKey(), delta.getValue());
+		}
+	}
+
+	protected void newXMLEventBatch(Session session) {
+	}
+
+	/**
+	 * Creates the state of a single parse run; to be overridden by
+	 * subclasses keeping additional per-run state.
+	 */
+	protected Session newSession(Text source, Text target, XMLParserConfiguration configuration) {
+		return new Session(source, target, configuration);
+	}
+
+	/**
+	 * Counts the characters written through it.
+	 */
+	static class CountingWriter extends FilterWriter {
+		private int count = 0;
+
+		CountingWriter(Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			super.write(c);
+			count++;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			super.write(cbuf, off, len);
+			count += len;
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			super.write(str, off, len);
+			count += len;
+		}
+
+		/**
+		 * @return the number of UTF-16 code units written so far
+		 */
+		int getCount() {
+			return count;
+		}
 	}
 
-	private int contentLength(Reader reader) throws IOException {
-		int contentLength = 0;
-		while (reader.read() >= 0) {
-			contentLength++;
+	/**
+	 * Attributes of the current XML node, reused across nodes.
+	 * 
+	 * <p/>
+	 * 
+	 * Holds names and values in parallel arrays; a map is only created by
+	 * parsers keeping the attributes of an annotation.
+	 */
+	protected static class Attributes {
+		/**
+		 * Attributes of nodes which cannot have any, e.g. text nodes.
+		 */
+		static final Attributes NONE = new Attributes();
+
+		private QName[] names = new QName[8];
+		private String[] values = new String[8];
+		private int size = 0;
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public QName getName(int index) {
+			return names[index];
+		}
+
+		public String getValue(int index) {
+			return values[index];
+		}
+
+		public String get(QName name) {
+			for (int ac = 0; ac < size; ac++) {
+				if (names[ac] == name || names[ac].equals(name)) {
+					return values[ac];
+				}
+			}
+			return null;
+		}
+
+		public void add(QName name, String value) {
+			if (size == names.length) {
+				final QName[] newNames = new QName[size * 2];
+				final String[] newValues = new String[size * 2];
+				System.arraycopy(names, 0, newNames, 0, size);
+				System.arraycopy(values, 0, newValues, 0, size);
+				names = newNames;
+				values = newValues;
+			}
+			names[size] = name;
+			values[size] = value;
+			size++;
+		}
+
+		public void clear() {
+			for (int ac = 0; ac < size; ac++) {
+				values[ac] = null;
+			}
+			size = 0;
+		}
+
+		/**
+		 * Estimates the size of these attributes in memory.
+		 */
+		public long estimateBytes() {
+			long bytes = 0;
+			for (int ac = 0; ac < size; ac++) {
+				bytes += ATTRIBUTE_BYTES + 2 * (names[ac].getLocalName().length() + values[ac].length());
+			}
+			return bytes;
+		}
+
+		/**
+		 * Copies these attributes.
+		 * 
+		 * @return a new, mutable map of attribute names to values
+		 */
+		public Map<QName, String> toMap() {
+			final Map<QName, String> map = Maps.newHashMapWithExpectedSize(size);
+			for (int ac = 0; ac < size; ac++) {
+				map.put(names[ac], values[ac]);
+			}
+			return map;
 		}
-		return contentLength;
 	}
 
 	protected class Session implements TextContentReader {
@@ -143,16 +365,24 @@ public abstract class XMLParser {
 		public final XMLParserConfiguration configuration;
 
 		protected final Stack<Annotation> elementContext = new Stack<Annotation>();
+		protected final Stack<Integer> elementFlagContext = new Stack<Integer>();
 		protected final Stack<Boolean> spacePreservationContext = new Stack<Boolean>();
 		protected final Stack<Boolean> inclusionContext = new Stack<Boolean>();
 		protected final Stack<Integer> nodePath = new Stack<Integer>();
-		protected final FileBackedOutputStream textBuffer = new FileBackedOutputStream(textBufferSize);
+		protected final Stack<Long> elementBytesContext = new Stack<Long>();
+		protected final TextBuffer textBuffer = new TextBuffer(textBufferSize);
+		private final QNameTable names = new QNameTable();
+		private final Map<QName, Integer> nameFlags = new IdentityHashMap<QName, Integer>();
+		private final OffsetMapping.Builder offsetMapping = (compactOffsets ? new OffsetMapping.Builder() : null);
 
 		protected int textOffset = 0;
 		protected int textStartOffset = -1;
 		protected Range lastDeltaTextRange = Range.NULL;
 		protected Range lastDeltaSourceRange = Range.NULL;
 
+		protected int pendingEntities = 0;
+		protected long pendingBytes = 0;
+
 		protected char notableCharacter;
 		protected char lastChar = (removeLeadingWhitespace ? ' ' : 0);
 		private XMLStreamReader reader;
@@ -165,11 +395,12 @@ public abstract class XMLParser {
 			this.nodePath.push(0);
 		}
 
-		protected Annotation startAnnotation(QName name, Map<QName, String> attributes) throws IOException {
+		protected Annotation startAnnotation(QName name, Attributes attributes) throws IOException {
 			checkOffsetDelta(lastDeltaSourceRange.getEnd());
 
-			final boolean lineElement = configuration.isLineElement(name);
-			final boolean notable = configuration.isNotable(name);
+			final int flags = flags(name);
+			final boolean lineElement = (flags & CompiledXMLParserConfiguration.LINE_ELEMENT) != 0;
+			final boolean notable = (flags & CompiledXMLParserConfiguration.NOTABLE) != 0;
 			if (lineElement || notable) {
 				if (lineElement && textOffset > 0) {
 					insertSpecialChar('\n');
@@ -179,29 +410,44 @@ public abstract class XMLParser {
 				}
 			}
 
-			final Annotation annotation = XMLParser.this.startAnnotation(this, name, attributes, textOffset, nodePath);
+			final Annotation annotation = XMLParser.this.startAnnotation(this, name, attributes, textOffset,
+					nodePath);
 
 			elementContext.push(annotation);
+			elementBytesContext.push(ANNOTATION_BYTES + attributes.estimateBytes());
+			elementFlagContext.push(flags);
 
 			final boolean parentIncluded = (inclusionContext.isEmpty() ? true : inclusionContext.peek());
-			inclusionContext.push(parentIncluded ? !configuration.excluded(name) : configuration.included(name));
+			inclusionContext.push(parentIncluded ? (flags & CompiledXMLParserConfiguration.EXCLUDED) == 0
+					: (flags & CompiledXMLParserConfiguration.INCLUDED) != 0);
 
 			spacePreservationContext.push(spacePreservationContext.isEmpty() ? false : spacePreservationContext.peek());
-			for (Map.Entry<QName, String> attr : attributes.entrySet()) {
-				if (QNameImpl.XML_SPACE.equals(attr.getKey())) {
-					spacePreservationContext.pop();
-					spacePreservationContext.push("preserve".equalsIgnoreCase(attr.getValue()));
-				}
+			final String space = attributes.get(QNameImpl.XML_SPACE);
+			if (space != null) {
+				spacePreservationContext.pop();
+				spacePreservationContext.push("preserve".equalsIgnoreCase(space));
 			}
 			nodePath.push(0);
 			return annotation;
 		}
 
+		/**
+		 * Determines the configured flags of a name, memoized per name
+		 * instance; names are {@link QNameTable interned} per session.
+		 */
+		protected int flags(QName name) {
+			Integer flags = nameFlags.get(name);
+			if (flags == null) {
+				nameFlags.put(name, flags = CompiledXMLParserConfiguration.flagsOf(configuration, name));
+			}
+			return flags;
+		}
+
 		protected void insertSpecialChar(char specialChar) throws IOException {
-			textBuffer.write(Character.toString(lastChar = specialChar).getBytes(charset));
+			textBuffer.append(lastChar = specialChar);
 
 			final int sourceOffset = lastDeltaSourceRange.getEnd();
-			newOffsetDelta(this, lastDeltaTextRange = new Range(textOffset, ++textOffset),//
+			offsetDelta(lastDeltaTextRange = new Range(textOffset, ++textOffset),//
 					lastDeltaSourceRange = new Range(sourceOffset, sourceOffset));
 		}
 
@@ -209,7 +455,10 @@ public abstract class XMLParser {
 			nodePath.pop();
 			spacePreservationContext.pop();
 			inclusionContext.pop();
-			XMLParser.this.endAnnotation(elementContext.pop(), textOffset);
+			elementFlagContext.pop();
+			XMLParser.this.endAnnotation(this, elementContext.pop(), textOffset);
+			// open elements are only saved once they end
+			pending(elementBytesContext.pop());
 		}
 
 		protected void nextSibling() {
@@ -227,67 +476,123 @@ public abstract class XMLParser {
 			}
 
 			final boolean preserveSpace = !spacePreservationContext.isEmpty() && spacePreservationContext.peek();
-			if (!preserveSpace && !elementContext.isEmpty()
-					&& configuration.isContainerElement(elementContext.peek().getName())) {
+			if (!preserveSpace && !elementFlagContext.isEmpty()
+					&& (elementFlagContext.peek() & CompiledXMLParserConfiguration.CONTAINER_ELEMENT) != 0) {
 				return;
 			}
 
 			final int sourceOffset = reader.getLocation().getCharacterOffset();
 			checkOffsetDelta(sourceOffset);
 
-			final String text = reader.getText();
-			final int textLength = text.length();
-			for (int cc = 0; cc < textLength; cc++) {
-				final char currentChar = text.charAt(cc);
-				if (!preserveSpace && configuration.isCompressingWhitespace() && Character.isWhitespace(lastChar)
-						&& Character.isWhitespace(currentChar)) {
+			final char[] text;
+			final int textStart;
+			final int textLength;
+			if (reader.getEventType() == XMLStreamConstants.ENTITY_REFERENCE) {
+				text = reader.getText().toCharArray();
+				textStart = 0;
+				textLength = text.length;
+			} else {
+				text = reader.getTextCharacters();
+				textStart = reader.getTextStart();
+				textLength = reader.getTextLength();
+			}
+
+			final boolean compressWhitespace = !preserveSpace && configuration.isCompressingWhitespace();
+			final int textEnd = textStart + textLength;
+			int runStart = textStart;
+			for (int cc = textStart; cc < textEnd; cc++) {
+				final char currentChar = text[cc];
+				if (compressWhitespace && Character.isWhitespace(lastChar) && Character.isWhitespace(currentChar)) {
+					append(text, runStart, cc);
+					runStart = cc + 1;
 					continue;
 				}
-				textBuffer.write(Character.toString(lastChar = currentChar).getBytes(charset));
-				textOffset++;
+				lastChar = currentChar;
 			}
-			
+			append(text, runStart, textEnd);
+
 			checkOffsetDelta(sourceOffset + textLength);
 		}
 
+		private void append(char[] text, int start, int end) throws IOException {
+			if (start < end) {
+				textBuffer.append(text, start, end - start);
+				textOffset += (end - start);
+			}
+		}
+
 		protected void end() {
 			checkOffsetDelta(reader.getLocation().getCharacterOffset());
 		}
 
 		protected void checkOffsetDelta(int sourceOffset) {
 			if (lastDeltaSourceRange.getEnd() < sourceOffset || lastDeltaTextRange.getEnd() < textOffset) {
-				newOffsetDelta(this, lastDeltaTextRange = new Range(lastDeltaTextRange.getEnd(), textOffset),//
+				offsetDelta(lastDeltaTextRange = new Range(lastDeltaTextRange.getEnd(), textOffset),//
 						lastDeltaSourceRange = new Range(lastDeltaSourceRange.getEnd(), sourceOffset));
 			}
 		}
 
+		private void offsetDelta(Range textRange, Range sourceRange) {
+			if (offsetMapping == null) {
+				newOffsetDelta(this, textRange, sourceRange);
+				pending(ANNOTATION_BYTES);
+			} else {
+				offsetMapping.add(textRange, sourceRange);
+			}
+		}
+
 		protected void writeText() {
 			if (textStartOffset >= 0 && textOffset > textStartOffset) {
-				Annotation text = XMLParser.this.startAnnotation(this, QNameImpl.TEXT_QNAME,
-						Maps.<QName, String> newHashMap(), textStartOffset, nodePath);
-				XMLParser.this.endAnnotation(text, textOffset);
+				Annotation text = XMLParser.this.startAnnotation(this, QNameImpl.TEXT_QNAME, Attributes.NONE,
+						textStartOffset, nodePath);
+				XMLParser.this.endAnnotation(this, text, textOffset);
+				pending(ANNOTATION_BYTES);
 			}
 			textStartOffset = -1;
 		}
 
+		/**
+		 * Records a generated entity pending to be flushed.
+		 * 
+		 * @param estimatedBytes
+		 *                its estimated size in memory
+		 */
+		protected void pending(long estimatedBytes) {
+			pendingEntities++;
+			pendingBytes += estimatedBytes;
+		}
+
+		/**
+		 * Flushes the pending entities and reports the time it took to the
+		 * {@link FlushPolicy}.
+		 */
+		protected void flush() {
+			final long start = System.nanoTime();
+			newXMLEventBatch(this);
+			flushPolicy.flushed(pendingEntities, pendingBytes, System.nanoTime() - start);
+			pendingEntities = 0;
+			pendingBytes = 0;
+		}
+
 		protected Reader read() throws IOException {
-			return new InputStreamReader(textBuffer.getSupplier().getInput(), charset);
+			return textBuffer.reader();
 		}
 
 		protected void dispose() throws IOException {
-			textBuffer.reset();
+			textBuffer.dispose();
 		}
 
 		public void read(Reader content, int contentLength) throws IOException {
 			reader = null;
 			try {
-				reader = xmlInputFactory.createXMLStreamReader(content);
-				int xmlEvents = 0;
-				Map<QName, String> attributes = null;
+				synchronized (xmlInputFactory) {
+					reader = xmlInputFactory.createXMLStreamReader(content);
+				}
+				final Attributes attributes = new Attributes();
 
 				while (reader.hasNext()) {
-					if (xmlEvents++ % xmlEventBatchSize == 0) {
-						newXMLEventBatch();
+					if (flushPolicy.isFlushDue(pendingEntities, pendingBytes)) {
+						flush();
 					}
 
 					switch (reader.next()) {
@@ -295,17 +600,18 @@ public abstract class XMLParser {
 						writeText();
 						nextSibling();
 
-						attributes = Maps.newHashMap();
+						attributes.clear();
 						final int attributeCount = reader.getAttributeCount();
 						for (int ac = 0; ac < attributeCount; ac++) {
-							final javax.xml.namespace.QName attrQName = reader.getAttributeName(ac);
-							if (XMLNS_ATTRIBUTE_NS_URI.equals(attrQName.getNamespaceURI())) {
+							final String attrNamespace = reader.getAttributeNamespace(ac);
+							if (XMLNS_ATTRIBUTE_NS_URI.equals(attrNamespace)) {
 								continue;
 							}
-							attributes.put(new QNameImpl(attrQName), reader.getAttributeValue(ac));
+							attributes.add(names.get(attrNamespace, reader.getAttributeLocalName(ac)),
+									reader.getAttributeValue(ac));
 						}
 
-						startAnnotation(new QNameImpl(reader.getName()), attributes);
+						startAnnotation(names.get(reader.getNamespaceURI(), reader.getLocalName()), attributes);
 						break;
 					case XMLStreamConstants.END_ELEMENT:
 						writeText();
@@ -315,8 +621,8 @@ public abstract class XMLParser {
 						writeText();
 						nextSibling();
 
-						attributes = Maps.newHashMap();
-						attributes.put(QNameImpl.COMMENT_TEXT_QNAME, reader.getText());
+						attributes.clear();
+						attributes.add(QNameImpl.COMMENT_TEXT_QNAME, reader.getText());
 						startAnnotation(QNameImpl.COMMENT_QNAME, attributes);
 						endAnnotation();
 						break;
@@ -324,11 +630,11 @@ public abstract class XMLParser {
 						writeText();
 						nextSibling();
 
-						attributes = Maps.newHashMap();
-						attributes.put(QNameImpl.PI_TARGET_QNAME, reader.getPITarget());
+						attributes.clear();
+						attributes.add(QNameImpl.PI_TARGET_QNAME, reader.getPITarget());
 						final String data = reader.getPIData();
 						if (data != null) {
-							attributes.put(QNameImpl.PI_DATA_QNAME, data);
+							attributes.add(QNameImpl.PI_DATA_QNAME, data);
 						}
 
 						startAnnotation(QNameImpl.PI_QNAME, attributes);
@@ -344,15 +650,16 @@ public abstract class XMLParser {
 						break;
 					}
 				}
+				if (offsetMapping != null) {
+					newOffsetMapping(this, offsetMapping.build());
+				}
+				flush();
 
 				Reader textContentReader = null;
 				try {
+					// every character of the text has been appended via this session
 					textContentReader = read();
-					final int textContentLength = contentLength(textContentReader);
-					Closeables.close(textContentReader, false);
-
-					textContentReader = read();
-					updateText(target, textContentReader, textContentLength);
+					updateText(target, textContentReader, textOffset);
 				} finally {
 					Closeables.closeQuietly(textContentReader);
 				}
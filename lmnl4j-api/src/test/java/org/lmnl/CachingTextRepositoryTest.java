@@ -0,0 +1,235 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+
+/**
+ * Tests the caching of text pages.
+ */
+public class CachingTextRepositoryTest extends AbstractDefaultDocumentTest {
+
+	@Autowired
+	private TextRepository textRepository;
+
+	private CachingTextRepository cache;
+
+	@Before
+	public void createCache() throws IOException {
+		cache = new CachingTextRepository(textRepository, 4, 16);
+		final String text = documentText();
+		cache.write(document, new StringReader(text), text.length());
+	}
+
+	@Test
+	public void readThroughCache() throws IOException {
+		final String text = documentText();
+		assertEquals(text.length(), cache.length(document));
+		assertEquals(1, cache.getMisses());
+
+		assertEquals(text.substring(2, 7), cache.read(document, new Range(2, 7)));
+		assertEquals(3, cache.getMisses());
+		assertEquals(text.substring(4, 6), cache.read(document, new Range(4, 6)));
+		assertEquals(3, cache.getMisses());
+		assertTrue(cache.getHits() > 0);
+
+		final SortedSet<Range> ranges = Sets.newTreeSet();
+		ranges.add(new Range(0, 3));
+		ranges.add(new Range(5, 9));
+		ranges.add(new Range(24, 30));
+		final SortedMap<Range, String> read = cache.bulkRead(document, ranges);
+		assertEquals(text.substring(0, 3), read.get(new Range(0, 3)));
+		assertEquals(text.substring(5, 9), read.get(new Range(5, 9)));
+		assertEquals(text.substring(24), read.get(new Range(24, 30)));
+	}
+
+	@Test
+	public void evict() throws IOException {
+		final String text = documentText();
+		assertEquals(text, cache.read(document, new Range(0, text.length())));
+		assertTrue(cache.getCachedChars() <= 16);
+		assertEquals(3, cache.getEvictions());
+	}
+
+	@Test
+	public void invalidateOnWrite() throws IOException {
+		assertEquals("abcd", cache.read(document, new Range(0, 4)));
+		cache.write(document, new StringReader("xyz"), 3);
+		assertEquals(0, cache.getCachedChars());
+		assertEquals(3, cache.length(document));
+		assertEquals("xyz", cache.read(document, new Range(0, 4)));
+	}
+
+	@Test
+	public void bypassPendingWrites() throws Exception {
+		final MemoryTextRepository contents = new MemoryTextRepository();
+		final DeferringCache cache = new DeferringCache(contents);
+		cache.write(document, new StringReader("abcd"), 4);
+		cache.completeWrites();
+		assertEquals("abcd", cache.read(document, new Range(0, 4)));
+		assertEquals(4, cache.getCachedChars());
+
+		cache.write(document, new StringReader("xyz"), 3);
+		assertEquals(0, cache.getCachedChars());
+		final ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			assertEquals("xyz", reader.submit(read(cache, new Range(0, 4))).get());
+			assertEquals(0, cache.getCachedChars());
+
+			cache.completeWrites();
+			assertEquals("xyz", reader.submit(read(cache, new Range(0, 4))).get());
+			assertEquals(3, cache.getCachedChars());
+		} finally {
+			reader.shutdown();
+		}
+	}
+
+	@Test
+	public void discardReadsConcurrentToWrites() throws Exception {
+		final MemoryTextRepository contents = new MemoryTextRepository();
+		final CachingTextRepository cache = new CachingTextRepository(contents, 4, 16);
+		cache.write(document, new StringReader("abcd"), 4);
+		assertEquals(4, cache.length(document));
+
+		contents.blockReads();
+		final ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			final Future<String> staleRead = reader.submit(read(cache, new Range(0, 4)));
+			contents.readStarted.await();
+			cache.write(document, new StringReader("wxyz"), 4);
+			contents.readsBlocked.countDown();
+
+			assertEquals("abcd", staleRead.get());
+			assertEquals(0, cache.getCachedChars());
+			assertEquals("wxyz", cache.read(document, new Range(0, 4)));
+		} finally {
+			reader.shutdown();
+		}
+	}
+
+	private Callable<String> read(final TextRepository repository, final Range range) {
+		return new Callable<String>() {
+
+			public String call() throws Exception {
+				return repository.read(document, range);
+			}
+		};
+	}
+
+	@Override
+	protected String documentText() {
+		return "abcdefghijklmnopqrstuvwxyz";
+	}
+
+	/**
+	 * Completes writes only on request, as if they had been committed then.
+	 */
+	private static class DeferringCache extends CachingTextRepository {
+		private final List<Text> written = Lists.newArrayList();
+
+		private DeferringCache(TextRepository delegate) {
+			super(delegate, 4, 16);
+		}
+
+		@Override
+		protected void afterWrite(Text text) {
+			written.add(text);
+		}
+
+		private void completeWrites() {
+			for (Text text : written) {
+				completeWrite(text);
+			}
+			written.clear();
+		}
+	}
+
+	/**
+	 * Keeps texts in memory, optionally blocking bulk reads after having
+	 * fetched the contents to be returned.
+	 */
+	private static class MemoryTextRepository implements TextRepository {
+		private final Map<Text, String> contents = Maps.newConcurrentMap();
+		private final CountDownLatch readStarted = new CountDownLatch(1);
+		private volatile CountDownLatch readsBlocked = new CountDownLatch(0);
+
+		private void blockReads() {
+			readsBlocked = new CountDownLatch(1);
+		}
+
+		public int length(Text text) throws IOException {
+			return contents.get(text).length();
+		}
+
+		public void read(Text text, TextContentReader reader) throws IOException {
+			final String content = contents.get(text);
+			reader.read(new StringReader(content), content.length());
+		}
+
+		public String read(Text text, Range range) throws IOException {
+			return bulkRead(text, Sets.newTreeSet(Collections.singleton(range))).get(range);
+		}
+
+		public SortedMap<Range, String> bulkRead(Text text, SortedSet<Range> ranges) throws IOException {
+			final String content = contents.get(text);
+			readStarted.countDown();
+			try {
+				readsBlocked.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e.getMessage());
+			}
+			final SortedMap<Range, String> read = Maps.newTreeMap();
+			for (Range range : ranges) {
+				read.put(range, content.substring(Math.min(range.getStart(), content.length()), Math.min(range.getEnd(), content.length())));
+			}
+			return read;
+		}
+
+		public void write(Text text, Reader contents, int contentLength) throws IOException {
+			this.contents.put(text, CharStreams.toString(contents));
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl;
+
+import java.net.URI;
+
+import com.google.common.base.Objects;
+
+/**
+ * An annotation in the test namespace, which is not stored in any repository.
+ */
+public class TestAnnotation implements Annotation {
+	private static final URI TEST_NS = URI.create("urn:lmnl-test-ns");
+
+	private final QName name;
+	private final Range range;
+
+	public TestAnnotation(String localName, int start, int end) {
+		this.name = new QNameImpl(TEST_NS, localName);
+		this.range = new Range(start, end);
+	}
+
+	public QName getName() {
+		return name;
+	}
+
+	public Range getRange() {
+		return range;
+	}
+
+	public Object getData() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).addValue(name).addValue(range).toString();
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.lmnl.ImmutableRange;
+import org.lmnl.Range;
+
+import com.google.common.base.Objects;
+
+/**
+ * Tests immutable ranges and their packed encoding against mutable ranges.
+ */
+public class ImmutableRangeTest {
+
+	@Test
+	public void packing() {
+		final long packed = ImmutableRange.pack(3, Integer.MAX_VALUE);
+		assertEquals(3, ImmutableRange.start(packed));
+		assertEquals(Integer.MAX_VALUE, ImmutableRange.end(packed));
+		assertEquals(Integer.MAX_VALUE - 3, ImmutableRange.length(packed));
+		assertEquals(new Range(3, Integer.MAX_VALUE), ImmutableRange.toRange(packed));
+		assertEquals(ImmutableRange.of(3, Integer.MAX_VALUE), ImmutableRange.unpack(packed));
+		assertEquals(packed, ImmutableRange.of(3, Integer.MAX_VALUE).pack());
+
+		assertTrue(ImmutableRange.pack(1, 5) < ImmutableRange.pack(2, 3));
+		assertTrue(ImmutableRange.pack(2, 3) < ImmutableRange.pack(2, 4));
+		assertSame(ImmutableRange.NULL, ImmutableRange.unpack(0L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidOffsets() {
+		ImmutableRange.of(5, 4);
+	}
+
+	@Test
+	public void algebra() {
+		for (int aStart = 0; aStart < 6; aStart++) {
+			for (int aEnd = aStart; aEnd < 6; aEnd++) {
+				for (int bStart = 0; bStart < 6; bStart++) {
+					for (int bEnd = bStart; bEnd < 6; bEnd++) {
+						final Range a = new Range(aStart, aEnd);
+						final Range b = new Range(bStart, bEnd);
+						final ImmutableRange ia = ImmutableRange.of(a);
+						final ImmutableRange ib = ImmutableRange.of(b);
+						final long pa = ImmutableRange.pack(a);
+						final long pb = ImmutableRange.pack(b);
+
+						assertEquals(a.encloses(b), ia.encloses(ib));
+						assertEquals(a.encloses(b), ImmutableRange.encloses(pa, pb));
+						assertEquals(a.enclosesWithPrefix(b), ia.enclosesWithPrefix(ib));
+						assertEquals(a.enclosesWithSuffix(b), ia.enclosesWithSuffix(ib));
+						assertEquals(a.fitsWithin(b), ia.fitsWithin(ib));
+						assertEquals(a.precedes(b), ia.precedes(ib));
+						assertEquals(a.follows(b), ia.follows(ib));
+
+						final Range overlap = a.overlap(b);
+						final boolean hasOverlap = (overlap != null) && (overlap.length() > 0);
+						assertEquals(hasOverlap, a.hasOverlapWith(b));
+						assertEquals(hasOverlap, ia.hasOverlapWith(ib));
+						assertEquals(hasOverlap, ImmutableRange.hasOverlap(pa, pb));
+						assertEquals(overlap == null ? null : ImmutableRange.of(overlap), ia.overlap(ib));
+
+						assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(ia.compareTo(ib)));
+						assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(ImmutableRange.compare(pa, pb)));
+						assertEquals(a.equals(b), ia.equals(ib));
+					}
+				}
+				final Range a = new Range(aStart, aEnd);
+				assertEquals(Objects.hashCode(aStart, aEnd), a.hashCode());
+				assertEquals(a.hashCode(), ImmutableRange.of(a).hashCode());
+				assertEquals(a, ImmutableRange.of(a).toRange());
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.base;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.lmnl.ImmutableRange;
+import org.lmnl.Range;
+import org.lmnl.RangeSet;
+import org.lmnl.Ranges;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests set operations on ranges against a character-wise computation.
+ */
+public class RangeSetTest {
+	private static final int BOUND = 200;
+
+	@Test
+	public void coalescing() {
+		final RangeSet set = RangeSet.builder().add(10, 20).add(0, 5).add(5, 7).add(15, 25).add(30, 30).build();
+		assertEquals(Lists.newArrayList(ImmutableRange.of(0, 7), ImmutableRange.of(10, 25)), set.asList());
+		assertEquals(22, set.length());
+		assertTrue(set.contains(6));
+		assertTrue(!set.contains(7));
+		assertEquals(Sets.newTreeSet(Arrays.asList(new Range(0, 7), new Range(10, 25))), set.toRanges());
+		assertArrayEquals(new long[] { ImmutableRange.pack(0, 7), ImmutableRange.pack(10, 25) }, set.toPackedArray());
+
+		assertEquals(RangeSet.EMPTY, RangeSet.builder().add(3, 3).build());
+		assertEquals(Lists.newArrayList(ImmutableRange.of(7, 10), ImmutableRange.of(25, 27)), set.complement(5, 27)
+				.asList());
+	}
+
+	@Test
+	public void randomSets() {
+		final Random random = new Random(23);
+		for (int run = 0; run < 200; run++) {
+			final boolean[] a = new boolean[BOUND];
+			final boolean[] b = new boolean[BOUND];
+			final RangeSet aSet = randomSet(random, a);
+			final RangeSet bSet = randomSet(random, b);
+
+			final boolean[] union = new boolean[BOUND];
+			final boolean[] intersection = new boolean[BOUND];
+			final boolean[] difference = new boolean[BOUND];
+			for (int oc = 0; oc < BOUND; oc++) {
+				union[oc] = a[oc] || b[oc];
+				intersection[oc] = a[oc] && b[oc];
+				difference[oc] = a[oc] && !b[oc];
+				assertEquals(a[oc], aSet.contains(oc));
+			}
+			assertEquals(toSet(a, 0, BOUND), aSet);
+			assertEquals(toSet(union, 0, BOUND), aSet.union(bSet));
+			assertEquals(toSet(intersection, 0, BOUND), aSet.intersection(bSet));
+			assertEquals(toSet(difference, 0, BOUND), aSet.difference(bSet));
+			assertEquals(toSet(a, 0, BOUND).length(), aSet.length());
+
+			final int start = random.nextInt(BOUND);
+			final int end = start + random.nextInt(BOUND - start);
+			final boolean[] complement = new boolean[BOUND];
+			for (int oc = start; oc < end; oc++) {
+				complement[oc] = !a[oc];
+			}
+			assertEquals(toSet(complement, start, end), aSet.complement(start, end));
+		}
+	}
+
+	@Test
+	public void exclude() {
+		final List<Range> ranges = Lists.newArrayList(new Range(0, 10), new Range(2, 9), new Range(20, 30));
+		final List<Range> excluded = Lists.newArrayList(new Range(1, 7), new Range(8, 9));
+		assertEquals(Lists.newArrayList(new Range(0, 1), new Range(7, 8), new Range(7, 8), new Range(9, 10),
+				new Range(20, 30)), Ranges.exclude(ranges, excluded));
+	}
+
+	@Test
+	public void substract() {
+		assertEquals(Sets.newTreeSet(Arrays.asList(new Range(0, 2), new Range(5, 10))), new Range(0, 10)
+				.substract(new Range(2, 5)));
+		assertEquals(Sets.newTreeSet(Arrays.asList(new Range(0, 2))), new Range(0, 5).substract(new Range(2, 5)));
+		assertEquals(Sets.newTreeSet(Arrays.asList(new Range(5, 8))), new Range(3, 8).substract(new Range(0, 5)));
+		assertTrue(new Range(3, 5).substract(new Range(0, 10)).isEmpty());
+	}
+
+	private static RangeSet randomSet(Random random, boolean[] covered) {
+		final RangeSet.Builder builder = RangeSet.builder();
+		final int count = random.nextInt(20);
+		for (int rc = 0; rc < count; rc++) {
+			final int start = random.nextInt(BOUND);
+			final int end = start + random.nextInt(Math.min(30, BOUND - start));
+			builder.add(start, end);
+			for (int oc = start; oc < end; oc++) {
+				covered[oc] = true;
+			}
+		}
+		return builder.build();
+	}
+
+	private static RangeSet toSet(boolean[] covered, int start, int end) {
+		final RangeSet.Builder builder = RangeSet.builder();
+		for (int oc = start; oc < end; oc++) {
+			if (covered[oc]) {
+				builder.add(oc, oc + 1);
+			}
+		}
+		return builder.build();
+	}
+}
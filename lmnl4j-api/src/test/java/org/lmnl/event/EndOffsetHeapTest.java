@@ -0,0 +1,90 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+import org.lmnl.Annotation;
+import org.lmnl.TestAnnotation;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the heap of open annotations used for generating end events.
+ */
+public class EndOffsetHeapTest {
+	@Test
+	public void growBeyondInitialCapacity() {
+		final EndOffsetHeap heap = new EndOffsetHeap(1);
+		for (int ac = 0; ac < 100; ac++) {
+			final int end = (ac * 37) % 100;
+			heap.add(end, annotation(end));
+		}
+		for (int end = 0; end < 100; end++) {
+			assertEquals(end, heap.minEnd());
+			assertEquals(end, heap.removeMin().getRange().getEnd());
+		}
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	public void equalEndsInInsertionOrder() {
+		final EndOffsetHeap heap = new EndOffsetHeap(2);
+		final List<Annotation> endingAt5 = Lists.newArrayList();
+		for (int ac = 0; ac < 10; ac++) {
+			final Annotation annotation = annotation(5);
+			endingAt5.add(annotation);
+			heap.add(5, annotation);
+			heap.add(7, annotation(7));
+		}
+		final Annotation first = annotation(3);
+		heap.add(3, first);
+
+		assertSame(first, heap.removeMin());
+		for (Annotation annotation : endingAt5) {
+			assertEquals(5, heap.minEnd());
+			assertSame(annotation, heap.removeMin());
+		}
+		for (int ac = 0; ac < 10; ac++) {
+			assertEquals(7, heap.removeMin().getRange().getEnd());
+		}
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void removeFromEmptyHeap() {
+		final EndOffsetHeap heap = new EndOffsetHeap(1);
+		heap.add(1, annotation(1));
+		heap.removeMin();
+		heap.removeMin();
+	}
+
+	private static Annotation annotation(int end) {
+		return new TestAnnotation("a", 0, end);
+	}
+}
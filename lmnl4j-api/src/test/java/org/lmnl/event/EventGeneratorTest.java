@@ -1,10 +1,18 @@
 package org.lmnl.event;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.lmnl.AbstractXMLTest;
 import org.lmnl.Annotation;
+import org.lmnl.TestAnnotation;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Lists;
+
 public class EventGeneratorTest extends AbstractXMLTest {
 
 	@Autowired
@@ -15,6 +23,35 @@ public class EventGeneratorTest extends AbstractXMLTest {
 		generator.generate(document("archimedes-palimpsest-tei.xml"), DEBUG_HANDLER);
 	}
 
+	/**
+	 * Generates events for nested, overlapping, empty and equally ending
+	 * annotations; annotations ending at the same offset end in the order
+	 * they have been started.
+	 */
+	@Test
+	public void eventOrder() throws EventHandlerException {
+		final List<Annotation> annotations = Arrays.<Annotation> asList(//
+				new TestAnnotation("a", 0, 10), new TestAnnotation("b", 0, 4), new TestAnnotation("c", 2, 6),//
+				new TestAnnotation("e", 4, 6), new TestAnnotation("d", 4, 4), new TestAnnotation("f", 6, 6),//
+				new TestAnnotation("g", 8, 10), new TestAnnotation("h", 8, 8));
+
+		final List<String> events = Lists.newArrayList();
+		new EventGenerator().generate(annotations, new EventHandler() {
+
+			public void startAnnotation(Annotation annotation) {
+				events.add("+" + annotation.getName().getLocalName());
+			}
+
+			public void endAnnotation(Annotation annotation) {
+				events.add("-" + annotation.getName().getLocalName());
+			}
+		});
+
+		assertEquals(Arrays.asList(//
+				"+a", "+b", "+c", "-b", "+e", "+d", "-d", "-c", "-e",//
+				"+f", "-f", "+g", "+h", "-h", "-a", "-g"), events);
+	}
+
 	private final EventHandler DEBUG_HANDLER = new EventHandler() {
 
 		public void startAnnotation(Annotation annotation) {
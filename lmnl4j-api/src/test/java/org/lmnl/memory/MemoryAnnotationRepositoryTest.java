@@ -0,0 +1,141 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.Annotation;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+import org.lmnl.Range;
+import org.lmnl.xml.SimpleXMLParserConfiguration;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests queries against annotations held on the heap.
+ */
+public class MemoryAnnotationRepositoryTest {
+	private static final URI TEST_NS = URI.create("urn:lmnl-test-ns");
+	private static final URI TEI_NS = URI.create("http://www.tei-c.org/ns/1.0");
+
+	private MemoryTextRepository textRepository;
+	private MemoryAnnotationRepository annotationRepository;
+	private MemoryText document;
+
+	@Before
+	public void createDocument() {
+		textRepository = new MemoryTextRepository();
+		annotationRepository = new MemoryAnnotationRepository();
+		document = textRepository.newText();
+	}
+
+	@Test
+	public void findEnclosedAndOverlapping() {
+		final Annotation a = add("a", 0, 2);
+		final Annotation b = add("b", 1, 4);
+		final Annotation c = add("c", 2, 3);
+		final Annotation d = add("d", 3, 3);
+		final Annotation e = add("e", 4, 6);
+		final Annotation f = add("f", 5, 6);
+
+		final Set<Range> ranges = Collections.singleton(new Range(1, 4));
+		assertEquals(Sets.newHashSet(b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, false)));
+		assertEquals(Sets.newHashSet(a, b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, true)));
+		assertEquals(Sets.newHashSet(b, c, d, e, f), Sets.newHashSet(annotationRepository.find(document, null, Collections.singleton(new Range(1, 6)), false)));
+		assertEquals(Sets.newHashSet(e, f), Sets.newHashSet(annotationRepository.find(document, Sets.<QName> newHashSet(name("e"), name("f"), name("x")))));
+	}
+
+	@Test
+	public void findInAdjacentRanges() {
+		final Annotation a = add("a", 0, 2);
+		final Annotation b = add("b", 2, 2);
+		final Annotation c = add("c", 3, 3);
+		final Annotation d = add("d", 4, 4);
+		final Annotation e = add("e", 3, 6);
+
+		final Set<Range> ranges = Sets.newHashSet();
+		for (int start = 0; start < 4; start++) {
+			ranges.add(new Range(start, start + 1));
+		}
+		ranges.add(new Range(2, 3));
+		ranges.add(new Range(1, 3));
+		ranges.add(new Range(3, 3));
+		assertEquals(Sets.newHashSet(a, b, e), Sets.newHashSet(annotationRepository.find(document, null, ranges, true)));
+		assertEquals(Sets.newHashSet(b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, false)));
+	}
+
+	@Test
+	public void order() {
+		final Annotation c = add("c", 2, 3);
+		final Annotation a = add("a", 0, 2);
+		final Annotation b = add("b", 0, 6);
+		final Annotation d = add("d", 2, 2);
+
+		assertEquals(Lists.newArrayList(b, a, c, d), Lists.newArrayList(annotationRepository.find(document, null, null, true, true)));
+		assertEquals(Lists.newArrayList(a, b, d, c), Lists.newArrayList(annotationRepository.find(document, null, null, true, false)));
+	}
+
+	@Test
+	public void parseXML() throws Exception {
+		final MemoryXMLParser xmlParser = new MemoryXMLParser();
+		xmlParser.setTextRepository(textRepository);
+		xmlParser.setAnnotationRepository(annotationRepository);
+
+		final MemoryText source = textRepository.newText();
+		xmlParser.load(source, new StreamSource(getClass().getResource("/george-algabal-tei.xml").toURI().toASCIIString()));
+		xmlParser.parse(source, document, new SimpleXMLParserConfiguration());
+		assertTrue(textRepository.length(document) > 0);
+
+		final Annotation root = Iterables.getOnlyElement(annotationRepository.find(document, new QNameImpl(TEI_NS, "TEI")));
+		final List<Annotation> children = Lists.newArrayList(annotationRepository.findChildren(root));
+		assertTrue(children.size() >= 2);
+		for (Annotation child : children) {
+			assertEquals(Lists.newArrayList(root), Lists.newArrayList(annotationRepository.findAncestors(child)));
+			assertEquals(children.size() - 1, Iterables.size(annotationRepository.findSiblings(child)));
+			assertTrue(root.getRange().encloses(child.getRange()));
+		}
+		for (Annotation descendant : annotationRepository.findDescendants(root)) {
+			assertTrue(root.getRange().encloses(descendant.getRange()));
+		}
+	}
+
+	private Annotation add(String name, int start, int end) {
+		return annotationRepository.add(document, name(name), new Range(start, end), null);
+	}
+
+	private static QName name(String name) {
+		return new QNameImpl(TEST_NS, name);
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import org.junit.Test;
+import org.lmnl.AbstractDefaultDocumentTest;
+import org.lmnl.Annotation;
+import org.lmnl.AnnotationRepository;
+import org.lmnl.QNameRepository;
+import org.lmnl.Range;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests range-restricted queries for annotations.
+ */
+public class AnnotationRepositoryTest extends AbstractDefaultDocumentTest {
+
+	@Autowired
+	private AnnotationRepository annotationRepository;
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	private QNameRepository nameRepository;
+
+	/**
+	 * Compares overlapping and containment queries against the same range.
+	 */
+	@Test
+	public void findEnclosedAndOverlapping() {
+		final Annotation a = addTestAnnotation("a", 0, 2);
+		final Annotation b = addTestAnnotation("b", 1, 4);
+		final Annotation c = addTestAnnotation("c", 2, 3);
+		final Annotation d = addTestAnnotation("d", 3, 3);
+		final Annotation e = addTestAnnotation("e", 4, 6);
+		final Annotation f = addTestAnnotation("f", 5, 6);
+
+		final Set<Range> ranges = Collections.singleton(new Range(1, 4));
+		assertEquals(Sets.newHashSet(b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, false)));
+		assertEquals(Sets.newHashSet(a, b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, true)));
+		assertEquals(Sets.newHashSet(b, c, d, e, f), Sets.newHashSet(annotationRepository.find(document, null, Collections.singleton(new Range(1, 6)), false)));
+	}
+
+	/**
+	 * Queries for a multitude of adjacent ranges, which are merged into one.
+	 */
+	@Test
+	public void findInAdjacentRanges() {
+		final Annotation a = addTestAnnotation("a", 0, 2);
+		final Annotation b = addTestAnnotation("b", 2, 2);
+		final Annotation c = addTestAnnotation("c", 3, 3);
+		final Annotation d = addTestAnnotation("d", 4, 4);
+		final Annotation e = addTestAnnotation("e", 3, 6);
+
+		final Set<Range> ranges = Sets.newHashSet();
+		for (int start = 0; start < 4; start++) {
+			ranges.add(new Range(start, start + 1));
+		}
+		ranges.add(new Range(2, 3));
+		ranges.add(new Range(1, 3));
+		ranges.add(new Range(3, 3));
+		assertEquals(Sets.newHashSet(a, b, e), Sets.newHashSet(annotationRepository.find(document, null, ranges, true)));
+		assertEquals(Sets.newHashSet(b, c, d), Sets.newHashSet(annotationRepository.find(document, null, ranges, false)));
+	}
+
+	/**
+	 * Orders annotations starting at the same offset outermost first in
+	 * document order, by ascending end offset otherwise.
+	 */
+	@Test
+	public void findOrdered() {
+		final Annotation a = addTestAnnotation("a", 0, 2);
+		final Annotation b = addTestAnnotation("b", 0, 6);
+		final Annotation c = addTestAnnotation("c", 0, 4);
+		final Annotation d = addTestAnnotation("d", 2, 3);
+		final Annotation e = addTestAnnotation("e", 2, 2);
+
+		assertEquals(Arrays.asList(b, c, a, d, e), Lists.newArrayList(annotationRepository.find(document, null, null, false, true)));
+		assertEquals(Arrays.asList(a, c, b, e, d), Lists.newArrayList(annotationRepository.find(document, null, null, false, false)));
+	}
+
+	/**
+	 * Runs the same query with and without streaming its results; streamed
+	 * annotations are evicted from the session while iterating.
+	 */
+	@Test
+	public void findStreaming() {
+		for (int start = 0; start < 50; start++) {
+			addTestAnnotation(start % 2 == 0 ? "a" : "b", start % 6, start % 6 + start % 3);
+		}
+		final Set<Range> ranges = Collections.singleton(new Range(1, 4));
+
+		final RelationalAnnotationRepository repository = new RelationalAnnotationRepository();
+		repository.setSessionFactory(sessionFactory);
+		repository.setNameRepository(nameRepository);
+		repository.setFetchSize(8);
+
+		final Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		session.clear();
+		final List<Annotation> listed = Lists.newArrayList(repository.find(document, null, ranges, true, true));
+		assertTrue(listed.size() > 8);
+		assertTrue(session.getStatistics().getEntityCount() >= listed.size());
+
+		session.clear();
+		repository.setStreaming(true);
+		final List<Annotation> streamed = Lists.newArrayList();
+		for (Annotation annotation : repository.find(document, null, ranges, true, true)) {
+			streamed.add(annotation);
+			assertTrue(session.getStatistics().getEntityCount() <= 3);
+		}
+		assertEquals(listed, streamed);
+	}
+
+	/**
+	 * Streams annotations filtered in memory and closes the cursor before the
+	 * end of the result has been reached.
+	 */
+	@Test
+	public void findStreamingFiltered() throws IOException {
+		for (int start = 0; start < 50; start++) {
+			addTestAnnotation(start % 2 == 0 ? "a" : "b", start % 6, start % 6 + start % 3);
+		}
+		final Set<Range> ranges = Sets.newHashSet(new Range(0, 1), new Range(4, 5));
+
+		final RelationalAnnotationRepository repository = new RelationalAnnotationRepository();
+		repository.setSessionFactory(sessionFactory);
+		repository.setNameRepository(nameRepository);
+		repository.setMaxRangeDisjunction(1);
+		repository.setFetchSize(8);
+		sessionFactory.getCurrentSession().flush();
+
+		final List<Annotation> listed = Lists.newArrayList(repository.find(document, null, ranges, false, true));
+		assertTrue(listed.size() > 1);
+
+		repository.setStreaming(true);
+		final Iterable<Annotation> streamed = repository.find(document, null, ranges, false, true);
+		assertEquals(listed, Lists.newArrayList(streamed));
+
+		final Iterator<Annotation> it = streamed.iterator();
+		assertEquals(listed.get(0), it.next());
+		assertTrue(it instanceof Closeable);
+		((Closeable) it).close();
+		assertFalse(it.hasNext());
+	}
+
+	@Override
+	protected String documentText() {
+		return "abcdef";
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.lmnl.AbstractXMLTest;
+import org.lmnl.Annotation;
+import org.lmnl.AnnotationRepository;
+import org.lmnl.Text;
+import org.lmnl.xml.SimpleXMLParserConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * Compares documents parsed in bulk insert mode with those parsed via the
+ * Hibernate session.
+ */
+public class BulkInsertTest extends AbstractXMLTest {
+
+	@Autowired
+	private RelationalXMLParser xmlParser;
+
+	@Autowired
+	private RelationalAnnotationFactory annotationFactory;
+
+	@Autowired
+	private AnnotationRepository annotationRepository;
+
+	@Test
+	public void bulkInsertMatchesSessionInsert() throws Exception {
+		final Text source = source("george-algabal-tei.xml");
+		final SimpleXMLParserConfiguration configuration = new SimpleXMLParserConfiguration();
+
+		final Text saved = annotationFactory.newText();
+		xmlParser.parse(source, saved, configuration);
+
+		final Text inserted = annotationFactory.newText();
+		final long insertedBefore = xmlParser.getBulkInserted();
+		xmlParser.setBulkInsert(true);
+		try {
+			xmlParser.parse(source, inserted, configuration);
+		} finally {
+			xmlParser.setBulkInsert(false);
+		}
+
+		final Multiset<List<Object>> annotations = annotations(inserted);
+		assertEquals(annotations(saved), annotations);
+		assertEquals(annotations.size(), xmlParser.getBulkInserted() - insertedBefore);
+		assertTrue(xmlParser.getBulkInsertRate() > 0);
+	}
+
+	private Multiset<List<Object>> annotations(Text text) {
+		final Multiset<List<Object>> annotations = HashMultiset.create();
+		for (Annotation annotation : annotationRepository.find(text)) {
+			annotations.add(Arrays.<Object> asList(annotation.getName(), annotation.getRange(), annotation.getData()));
+		}
+		return annotations;
+	}
+}
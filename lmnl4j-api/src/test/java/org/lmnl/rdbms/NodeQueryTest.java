@@ -0,0 +1,84 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.lmnl.AbstractXMLTest;
+import org.lmnl.Annotation;
+import org.lmnl.AnnotationRepository;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+import org.lmnl.Text;
+import org.lmnl.xml.NodePath;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests queries for annotations related via the XML node hierarchy they have
+ * been parsed from.
+ */
+public class NodeQueryTest extends AbstractXMLTest {
+
+	@Autowired
+	private AnnotationRepository annotationRepository;
+
+	@Test
+	public void navigateHierarchy() {
+		final Text document = document("george-algabal-tei.xml");
+		final Annotation root = Iterables.getOnlyElement(annotationRepository.find(document, new QNameImpl(TEI_NS, "TEI")));
+
+		final List<QName> childNames = Lists.newArrayList();
+		final List<Annotation> children = Lists.newArrayList(annotationRepository.findChildren(root));
+		for (Annotation child : children) {
+			childNames.add(child.getName());
+			assertEquals(Lists.newArrayList(root), Lists.newArrayList(annotationRepository.findAncestors(child)));
+			assertEquals(children.size() - 1, Iterables.size(annotationRepository.findSiblings(child)));
+		}
+		final int header = childNames.indexOf(new QNameImpl(TEI_NS, "teiHeader"));
+		final int text = childNames.indexOf(new QNameImpl(TEI_NS, "text"));
+		assertTrue(header >= 0 && header < text);
+
+		int nodes = 0;
+		for (Annotation annotation : annotationRepository.find(document)) {
+			if (((AnnotationRelation) annotation).getNodePath() != null) {
+				nodes++;
+			}
+		}
+
+		byte[] last = null;
+		int descendants = 0;
+		for (Annotation descendant : annotationRepository.findDescendants(root)) {
+			final byte[] nodePath = ((AnnotationRelation) descendant).getNodePath();
+			assertTrue(last == null || NodePath.compare(last, nodePath) < 0);
+			last = nodePath;
+			descendants++;
+		}
+		assertEquals(nodes - 1, descendants);
+	}
+}
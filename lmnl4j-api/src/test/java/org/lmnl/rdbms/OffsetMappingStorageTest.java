@@ -0,0 +1,130 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.mapping.SimpleValue;
+import org.junit.Test;
+import org.lmnl.AbstractDefaultDocumentTest;
+import org.lmnl.Range;
+import org.lmnl.Text;
+import org.lmnl.xml.OffsetMapping;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests storing offset mappings apart from their texts.
+ */
+public class OffsetMappingStorageTest extends AbstractDefaultDocumentTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Test
+	public void storeAndReplace() {
+		assertNull(annotationFactory.getOffsetMapping(document));
+
+		annotationFactory.setOffsetMapping(document, mapping(5));
+		assertEquals(new Range(10, 15), annotationFactory.getOffsetMapping(document).toSource(new Range(0, 5)));
+
+		annotationFactory.setOffsetMapping(document, mapping(7));
+		final OffsetMapping replaced = annotationFactory.getOffsetMapping(document);
+		assertEquals(2, replaced.size());
+		assertEquals(new Range(10, 17), replaced.toSource(new Range(0, 7)));
+	}
+
+	@Test
+	public void readAfterClearingSession() {
+		annotationFactory.setOffsetMapping(document, mapping(5));
+
+		final Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		session.clear();
+
+		final TextRelation text = (TextRelation) session.get(TextRelation.class, ((TextRelation) document).getId());
+		assertEquals(2, annotationFactory.getOffsetMapping(text).size());
+	}
+
+	@Test
+	public void deletedWithText() {
+		annotationFactory.setOffsetMapping(document, mapping(5));
+		annotationFactory.delete(document);
+		sessionFactory.getCurrentSession().flush();
+		assertNull(annotationFactory.getOffsetMapping(document));
+	}
+
+	/**
+	 * Stores a mapping for a text whose insertion is deferred until the
+	 * session is flushed, as with any identifier generator but identity
+	 * columns.
+	 */
+	@Test
+	public void deferredTextInsertion() {
+		final Configuration configuration = new Configuration();
+		configuration.addResource("org/lmnl/rdbms/lmnl.hbm.xml");
+		configuration.buildMappings();
+		final SimpleValue textId = (SimpleValue) configuration.getClassMapping(TextRelation.class.getName()).getIdentifier();
+		textId.setIdentifierGeneratorStrategy("increment");
+
+		configuration.setProperty(Environment.DIALECT, H2Dialect.class.getName());
+		configuration.setProperty(Environment.DRIVER, "org.h2.Driver");
+		configuration.setProperty(Environment.URL, "jdbc:h2:mem:lmnl-deferred-inserts;DB_CLOSE_DELAY=-1");
+		configuration.setProperty(Environment.HBM2DDL_AUTO, "create");
+		configuration.setProperty(Environment.CURRENT_SESSION_CONTEXT_CLASS, "thread");
+
+		final SessionFactory deferringSessionFactory = configuration.buildSessionFactory();
+		try {
+			final RelationalAnnotationFactory deferringFactory = new RelationalAnnotationFactory();
+			deferringFactory.setSessionFactory(deferringSessionFactory);
+
+			final Transaction tx = deferringSessionFactory.getCurrentSession().beginTransaction();
+			try {
+				final Text text = deferringFactory.newText();
+				deferringFactory.setOffsetMapping(text, mapping(5));
+				assertEquals(2, deferringFactory.getOffsetMapping(text).size());
+			} finally {
+				tx.rollback();
+			}
+		} finally {
+			deferringSessionFactory.close();
+		}
+	}
+
+	private OffsetMapping mapping(int length) {
+		return new OffsetMapping.Builder()//
+				.add(new Range(0, 0), new Range(0, 10))//
+				.add(new Range(0, length), new Range(10, 10 + length))//
+				.build();
+	}
+
+	@Override
+	protected String documentText() {
+		return "hello";
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.AbstractDefaultDocumentTest;
+import org.lmnl.Range;
+import org.lmnl.TextContentReader;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+
+/**
+ * Tests reading and writing texts stored in pages.
+ */
+public class PagedTextRepositoryTest extends AbstractDefaultDocumentTest {
+	private static final int PAGE_SIZE = 16;
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	private PagedTextRepository textRepository;
+
+	@Before
+	public void createRepository() throws IOException {
+		textRepository = new PagedTextRepository();
+		textRepository.setSessionFactory(sessionFactory);
+		textRepository.setPageSize(PAGE_SIZE);
+
+		final String text = documentText();
+		textRepository.write(document, new StringReader(text), text.length());
+	}
+
+	@Test
+	public void readRanges() throws IOException {
+		final String text = documentText();
+		assertEquals(text.length(), textRepository.length(document));
+		assertEquals(text.substring(3, 5), textRepository.read(document, new Range(3, 5)));
+		assertEquals(text.substring(10, 40), textRepository.read(document, new Range(10, 40)));
+		assertEquals(text.substring(PAGE_SIZE, 2 * PAGE_SIZE), textRepository.read(document, new Range(PAGE_SIZE, 2 * PAGE_SIZE)));
+		assertEquals("", textRepository.read(document, new Range(PAGE_SIZE, PAGE_SIZE)));
+		assertEquals(text.substring(text.length() - 3), textRepository.read(document, new Range(text.length() - 3, text.length() + 10)));
+
+		final SortedSet<Range> ranges = Sets.newTreeSet();
+		ranges.add(new Range(0, 3));
+		ranges.add(new Range(2, 20));
+		ranges.add(new Range(17, 17));
+		ranges.add(new Range(50, 52));
+		ranges.add(new Range(60, 100));
+		final SortedMap<Range, String> read = textRepository.bulkRead(document, ranges);
+		assertEquals(ranges, read.keySet());
+		for (Range range : ranges) {
+			assertEquals(text.substring(range.getStart(), range.getEnd()), read.get(range));
+		}
+	}
+
+	@Test
+	public void readContents() throws IOException {
+		textRepository.read(document, new TextContentReader() {
+
+			public void read(Reader content, int contentLength) throws IOException {
+				assertEquals(documentText().length(), contentLength);
+				assertEquals(documentText(), CharStreams.toString(content));
+			}
+		});
+	}
+
+	@Test
+	public void rewrite() throws IOException {
+		textRepository.write(document, new StringReader("abc"), 3);
+		assertEquals(3, textRepository.length(document));
+		assertEquals("bc", textRepository.read(document, new Range(1, 10)));
+	}
+
+	@Override
+	protected String documentText() {
+		final StringBuilder text = new StringBuilder();
+		for (int cc = 0; cc < 100; cc++) {
+			text.append((char) ('a' + (cc % 26)));
+		}
+		return text.toString();
+	}
+}
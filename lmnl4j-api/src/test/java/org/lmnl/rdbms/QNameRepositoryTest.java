@@ -0,0 +1,190 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.AbstractTest;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests caching of resolved names across transactions.
+ *
+ * <p/>
+ *
+ * The repository under test is not transactional itself, so it has no
+ * session outside of the transactions started by the tests and can only
+ * answer from its cache there.
+ */
+public class QNameRepositoryTest extends AbstractTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private RelationalQNameRepository nameRepository;
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void createRepository() {
+		nameRepository = new RelationalQNameRepository();
+		nameRepository.setSessionFactory(sessionFactory);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Test
+	public void cacheHitWithoutSession() {
+		final QName name = new QNameImpl(TEST_NS, "cached");
+		final QNameRelation created = resolveCommitted(name);
+		assertSame(created, nameRepository.get(name));
+		assertTrue(isUnresolvable(new QNameImpl(TEST_NS, "uncached")));
+	}
+
+	@Test
+	public void preload() {
+		final QName name = new QNameImpl(TEST_NS, "preloaded");
+		final QNameRelation created = resolveCommitted(name);
+
+		nameRepository.clearCache();
+		assertTrue(isUnresolvable(name));
+
+		nameRepository.preload();
+		assertEquals(created.getId(), ((QNameRelation) nameRepository.get(name)).getId());
+	}
+
+	@Test
+	public void rollback() throws Exception {
+		final QName name = new QNameImpl(TEST_NS, "rolledBack");
+		final QNameRelation rolledBack = transactionTemplate.execute(new TransactionCallback<QNameRelation>() {
+
+			public QNameRelation doInTransaction(TransactionStatus status) {
+				final QNameRelation created = (QNameRelation) nameRepository.get(name);
+				assertSame(created, nameRepository.get(name));
+
+				// not visible to other threads before commit
+				final ExecutorService executor = Executors.newSingleThreadExecutor();
+				try {
+					assertTrue(executor.submit(new Callable<Boolean>() {
+
+						public Boolean call() throws Exception {
+							return isUnresolvable(name);
+						}
+					}).get());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				} finally {
+					executor.shutdown();
+				}
+
+				status.setRollbackOnly();
+				return created;
+			}
+		});
+
+		assertTrue(isUnresolvable(name));
+		assertTrue(rolledBack.getId() != resolveCommitted(name).getId());
+	}
+
+	@Test
+	public void singleFlight() throws Exception {
+		final QName name = new QNameImpl(TEST_NS, "concurrent");
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<QNameRelation> concurrent = transactionTemplate.execute(new TransactionCallback<Future<QNameRelation>>() {
+
+				public Future<QNameRelation> doInTransaction(TransactionStatus status) {
+					nameRepository.get(name);
+
+					// waits for this transaction to complete
+					final Future<QNameRelation> concurrent = executor.submit(new Callable<QNameRelation>() {
+
+						public QNameRelation call() throws Exception {
+							return resolveCommitted(name);
+						}
+					});
+					try {
+						concurrent.get(200, TimeUnit.MILLISECONDS);
+						fail();
+					} catch (TimeoutException e) {
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+					return concurrent;
+				}
+			});
+			assertEquals(resolveCommitted(name).getId(), concurrent.get().getId());
+		} finally {
+			executor.shutdown();
+		}
+
+		final Number created = transactionTemplate.execute(new TransactionCallback<Number>() {
+
+			public Number doInTransaction(TransactionStatus status) {
+				return (Number) sessionFactory.getCurrentSession().createCriteria(QNameRelation.class)//
+						.add(Restrictions.eq("localName", name.getLocalName())).setProjection(Projections.rowCount()).uniqueResult();
+			}
+		});
+		assertEquals(1, created.intValue());
+	}
+
+	private QNameRelation resolveCommitted(final QName name) {
+		return transactionTemplate.execute(new TransactionCallback<QNameRelation>() {
+
+			public QNameRelation doInTransaction(TransactionStatus status) {
+				return (QNameRelation) nameRepository.get(name);
+			}
+		});
+	}
+
+	private boolean isUnresolvable(QName name) {
+		try {
+			nameRepository.get(name);
+			return false;
+		} catch (HibernateException e) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.AbstractDefaultDocumentTest;
+import org.lmnl.Range;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests reading ranges of a stored text.
+ */
+public class TextRepositoryTest extends AbstractDefaultDocumentTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	private RelationalTextRepository textRepository;
+
+	@Before
+	public void createRepository() {
+		textRepository = new RelationalTextRepository();
+		textRepository.setSessionFactory(sessionFactory);
+	}
+
+	/**
+	 * Compares single-pass bulk reads of overlapping, adjacent, nested and
+	 * disjoint ranges with reads of every range on its own.
+	 */
+	@Test
+	public void coalescedBulkRead() throws Exception {
+		final String text = documentText();
+		textRepository.write(document, new StringReader(text), text.length());
+
+		final SortedSet<Range> ranges = Sets.newTreeSet();
+		ranges.add(new Range(0, 3));
+		ranges.add(new Range(2, 5));
+		ranges.add(new Range(5, 7));
+		ranges.add(new Range(3, 4));
+		ranges.add(new Range(6, 6));
+		ranges.add(new Range(10, 12));
+		ranges.add(new Range(20, 26));
+
+		final SortedMap<Range, String> expected = textRepository.bulkRead(document, ranges);
+		textRepository.setCoalescedBulkRead(true);
+		assertEquals(expected, textRepository.bulkRead(document, ranges));
+		assertEquals("cde", textRepository.read(document, new Range(2, 5)));
+	}
+
+	@Override
+	protected String documentText() {
+		return "abcdefghijklmnopqrstuvwxyz";
+	}
+}
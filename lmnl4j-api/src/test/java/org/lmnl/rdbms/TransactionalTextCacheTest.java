@@ -0,0 +1,151 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.rdbms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.AbstractTest;
+import org.lmnl.Range;
+import org.lmnl.Text;
+import org.lmnl.TextRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Tests invalidating cached texts once writes to them have been committed or
+ * rolled back.
+ */
+public class TransactionalTextCacheTest extends AbstractTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TextRepository textRepository;
+
+	@Autowired
+	private RelationalAnnotationFactory annotationFactory;
+
+	private TransactionalTextCache cache;
+	private TransactionTemplate transactionTemplate;
+	private Text text;
+
+	@Before
+	public void createText() {
+		cache = new TransactionalTextCache(textRepository, sessionFactory, 4, 16);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		text = transactionTemplate.execute(new TransactionCallback<Text>() {
+
+			public Text doInTransaction(TransactionStatus status) {
+				final Text text = annotationFactory.newText();
+				write(text, "abcd");
+				return text;
+			}
+		});
+		assertEquals("abcd", read());
+		assertEquals(4, cache.getCachedChars());
+	}
+
+	@After
+	public void deleteText() {
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				annotationFactory.delete(text);
+			}
+		});
+	}
+
+	@Test
+	public void invalidateOnCommit() {
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				write(text, "wxyz");
+				assertEquals("wxyz", read(text));
+				assertEquals(0, cache.getCachedChars());
+			}
+		});
+		assertEquals(0, cache.getCachedChars());
+		assertEquals("wxyz", read());
+		assertEquals(4, cache.getCachedChars());
+	}
+
+	@Test
+	public void invalidateOnRollback() {
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				write(text, "wxyz");
+				assertEquals("wxyz", read(text));
+				assertEquals(0, cache.getCachedChars());
+				status.setRollbackOnly();
+			}
+		});
+		assertEquals(0, cache.getCachedChars());
+		assertEquals("abcd", read());
+	}
+
+	private String read() {
+		return transactionTemplate.execute(new TransactionCallback<String>() {
+
+			public String doInTransaction(TransactionStatus status) {
+				return read(text);
+			}
+		});
+	}
+
+	private String read(Text text) {
+		try {
+			return cache.read(text, new Range(0, 4));
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+
+	private void write(Text text, String content) {
+		try {
+			cache.write(text, new StringReader(content), content.length());
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests overlap, stabbing and containment queries against a nested
+ * containment list.
+ */
+public class IntervalIndexTest {
+
+	@Test
+	public void nesting() {
+		final int[] starts = { 0, 0, 2, 3, 3, 6, 6, 8 };
+		final int[] ends = { 10, 4, 12, 3, 5, 6, 7, 9 };
+		final IntervalIndex index = new IntervalIndex(starts, ends, starts.length);
+		assertEquals(8, index.size());
+
+		assertArrayEquals(new int[] { 0, 1, 2, 4 }, index.covering(3));
+		assertArrayEquals(new int[] { 0, 2, 6 }, index.covering(6));
+		assertArrayEquals(new int[] { 2 }, index.covering(11));
+		assertArrayEquals(new int[0], index.covering(12));
+
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, index.overlapping(2, 4));
+		assertArrayEquals(new int[] { 0, 2, 5, 6 }, index.overlapping(5, 7));
+		assertArrayEquals(new int[] { 0, 1, 2 }, index.overlapping(3, 3));
+
+		assertArrayEquals(new int[] { 3, 4, 5, 6 }, index.containedIn(3, 7));
+		assertArrayEquals(new int[] { 5 }, index.containedIn(6, 6));
+		assertArrayEquals(new int[] { 0, 1, 3, 4, 5, 6, 7 }, index.containedIn(0, 10));
+	}
+
+	@Test
+	public void emptyIndex() {
+		final IntervalIndex index = new IntervalIndex(new int[0], new int[0], 0);
+		assertArrayEquals(new int[0], index.overlapping(0, 10));
+		assertArrayEquals(new int[0], index.covering(0));
+		assertArrayEquals(new int[0], index.containedIn(0, 10));
+	}
+
+	@Test
+	public void randomIntervals() {
+		final Random random = new Random(42);
+		for (int run = 0; run < 20; run++) {
+			final int size = random.nextInt(500);
+			final int[] starts = new int[size + 10];
+			final int[] ends = new int[size + 10];
+			for (int ic = 0; ic < size; ic++) {
+				starts[ic] = random.nextInt(200);
+				ends[ic] = starts[ic] + (random.nextInt(4) == 0 ? 0 : random.nextInt(run % 2 == 0 ? 10 : 100));
+			}
+			final IntervalIndex index = new IntervalIndex(starts, ends, size);
+
+			for (int query = 0; query < 100; query++) {
+				final int start = random.nextInt(220);
+				final int end = start + random.nextInt(30);
+				assertArrayEquals(scan(starts, ends, size, start, end, true), index.overlapping(start, end));
+				assertArrayEquals(scan(starts, ends, size, start, end, false), index.containedIn(start, end));
+				assertArrayEquals(scan(starts, ends, size, start, start + 1, true), index.covering(start));
+			}
+		}
+	}
+
+	private static int[] scan(int[] starts, int[] ends, int size, int start, int end, boolean overlapping) {
+		int count = 0;
+		final int[] result = new int[size];
+		for (int ic = 0; ic < size; ic++) {
+			if (overlapping ? (starts[ic] < end && ends[ic] > start) : (starts[ic] >= start && ends[ic] <= end)) {
+				result[count++] = ic;
+			}
+		}
+		final int[] trimmed = new int[count];
+		System.arraycopy(result, 0, trimmed, 0, count);
+		return trimmed;
+	}
+}
@@ -21,12 +21,18 @@
 
 package org.lmnl.util;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Test;
 import org.lmnl.AbstractDefaultDocumentTest;
+import org.lmnl.Annotation;
 import org.lmnl.AnnotationRepository;
 import org.lmnl.util.OverlapIndexer;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+
 /**
  * Tests the calculation of overlap indizes.
  * 
@@ -54,6 +60,54 @@ public class OverlapIndexerTest extends AbstractDefaultDocumentTest {
 		printDebugMessage(new OverlapIndexer().apply(annotationRepository.find(document)));
 	}
 
+	/**
+	 * Compares the index built in sweeping mode with the one built by
+	 * scanning, including nested, empty and unfiltered annotations.
+	 */
+	@Test
+	public void sweepingMatchesScanning() {
+		addTestAnnotation("a", 0, 2);
+		addTestAnnotation("b", 1, 4);
+		addTestAnnotation("c", 0, 1);
+		addTestAnnotation("d", 0, 6);
+		addTestAnnotation("e", 2, 3);
+		addTestAnnotation("f", 2, 2);
+		addTestAnnotation("g", 3, 3);
+		addTestAnnotation("h", 4, 6);
+		addTestAnnotation("i", 5, 5);
+		addTestAnnotation("j", 1, 4);
+
+		final Iterable<Annotation> annotations = annotationRepository.find(document);
+		assertEquals(new OverlapIndexer().apply(annotations), new OverlapIndexer(null, true).apply(annotations));
+
+		final Predicate<Annotation> filter = new Predicate<Annotation>() {
+
+			public boolean apply(Annotation input) {
+				return input.getRange().length() > 1;
+			}
+		};
+		assertEquals(new OverlapIndexer(filter).apply(annotations), new OverlapIndexer(filter, true).apply(annotations));
+	}
+
+	/**
+	 * Compares the segments yielded by streaming indexing with the entries of
+	 * the complete index.
+	 */
+	@Test
+	public void streamingMatchesIndex() {
+		addTestAnnotation("a", 0, 2);
+		addTestAnnotation("b", 1, 4);
+		addTestAnnotation("c", 0, 1);
+		addTestAnnotation("d", 0, 6);
+		addTestAnnotation("e", 2, 3);
+		addTestAnnotation("f", 2, 2);
+		addTestAnnotation("g", 8, 9);
+
+		final Iterable<Annotation> annotations = annotationRepository.find(document);
+		assertEquals(Lists.newArrayList(new OverlapIndexer().apply(annotations).entrySet()), Lists
+				.newArrayList(new StreamingOverlapIndexer().apply(annotations)));
+	}
+
 	@Override
 	protected String documentText() {
 		return "abcdef";
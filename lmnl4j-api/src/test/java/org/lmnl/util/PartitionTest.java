@@ -0,0 +1,135 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.lmnl.Annotation;
+import org.lmnl.Range;
+import org.lmnl.TestAnnotation;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the partitioning of texts by range boundaries.
+ */
+public class PartitionTest {
+	@Test
+	public void segments() {
+		final Partition partition = new Partitioning().partition(annotations(0, 2, 1, 4, 0, 1, 0, 6, 2, 3));
+		assertEquals(5, partition.size());
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, partition.getStarts());
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 6 }, partition.getEnds());
+		assertEquals(new Range(4, 6), partition.get(4));
+		assertEquals(Lists.newArrayList(partition), Lists.newArrayList(partition.toSortedSet()));
+	}
+
+	@Test
+	public void indexOf() {
+		final Partition partition = new Partitioning().partition(annotations(2, 5, 3, 9, 5, 7));
+		assertEquals(-1, partition.indexOf(0));
+		assertEquals(-1, partition.indexOf(1));
+		assertEquals(0, partition.indexOf(2));
+		assertEquals(1, partition.indexOf(3));
+		assertEquals(1, partition.indexOf(4));
+		assertEquals(2, partition.indexOf(5));
+		assertEquals(3, partition.indexOf(8));
+		assertEquals(-1, partition.indexOf(9));
+		assertEquals(-1, partition.indexOf(10));
+
+		for (int segment = 0; segment < partition.size(); segment++) {
+			for (int offset = partition.getStart(segment); offset < partition.getEnd(segment); offset++) {
+				assertEquals(segment, partition.indexOf(offset));
+			}
+		}
+	}
+
+	@Test
+	public void emptyInput() {
+		final Partition partition = new Partitioning().partition(annotations());
+		assertTrue(partition.isEmpty());
+		assertEquals(0, partition.size());
+		assertEquals(0, partition.getStarts().length);
+		assertEquals(0, partition.getEnds().length);
+		assertEquals(-1, partition.indexOf(0));
+		assertTrue(partition.toSortedSet().isEmpty());
+	}
+
+	@Test
+	public void emptyRanges() {
+		final Partition partition = new Partitioning().partition(annotations(3, 3, 3, 3));
+		assertTrue(partition.isEmpty());
+		assertEquals(-1, partition.indexOf(3));
+	}
+
+	@Test
+	public void duplicateOffsets() {
+		final Partition partition = new Partitioning().partition(annotations(0, 4, 0, 4, 2, 4, 0, 2, 4, 4));
+		assertArrayEquals(new int[] { 0, 2 }, partition.getStarts());
+		assertArrayEquals(new int[] { 2, 4 }, partition.getEnds());
+	}
+
+	@Test
+	public void growsForIterables() {
+		final int[] ranges = new int[200];
+		for (int rc = 0; rc < ranges.length; rc += 2) {
+			ranges[rc] = rc;
+			ranges[rc + 1] = rc + 1;
+		}
+		final List<Annotation> annotations = annotations(ranges);
+		final Iterable<Annotation> iterable = Iterables.unmodifiableIterable(annotations);
+		final Partition partition = new Partitioning().partition(iterable);
+		assertEquals(ranges.length - 1, partition.size());
+		assertEquals(ranges.length - 2, partition.getStart(partition.size() - 1));
+		assertEquals(ranges.length - 1, partition.getEnd(partition.size() - 1));
+		assertEquals(new Partitioning().apply(annotations), partition.toSortedSet());
+	}
+
+	@Test
+	public void filtered() {
+		final Predicate<Annotation> longRanges = new Predicate<Annotation>() {
+
+			public boolean apply(Annotation input) {
+				return input.getRange().length() > 1;
+			}
+		};
+		final Partition partition = new Partitioning(longRanges).partition(annotations(0, 1, 2, 5, 3, 4, 4, 8));
+		assertArrayEquals(new int[] { 2, 4, 5 }, partition.getStarts());
+		assertArrayEquals(new int[] { 4, 5, 8 }, partition.getEnds());
+	}
+
+	private static List<Annotation> annotations(int... ranges) {
+		final List<Annotation> annotations = Lists.newArrayList();
+		for (int rc = 0; rc < ranges.length; rc += 2) {
+			annotations.add(new TestAnnotation("test", ranges[rc], ranges[rc + 1]));
+		}
+		return annotations;
+	}
+}
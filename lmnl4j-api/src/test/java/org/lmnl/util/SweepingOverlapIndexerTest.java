@@ -0,0 +1,69 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.lmnl.AbstractXMLTest;
+import org.lmnl.Annotation;
+import org.lmnl.AnnotationRepository;
+import org.lmnl.QNameImpl;
+import org.lmnl.Text;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests that sweeping overlap indexing yields the same indizes as the scanning
+ * one on documents generated from XML test resources.
+ */
+public class SweepingOverlapIndexerTest extends AbstractXMLTest {
+
+	@Autowired
+	private AnnotationRepository annotationRepository;
+
+	@Test
+	public void indexArchimedes() {
+		assertSameIndex(document("archimedes-palimpsest-tei.xml"));
+	}
+
+	@Test
+	public void indexAlgabal() {
+		assertSameIndex(document("george-algabal-tei.xml"));
+	}
+
+	private void assertSameIndex(Text document) {
+		final Iterable<Annotation> annotations = Lists.newArrayList(annotationRepository.find(document));
+		assertEquals(new OverlapIndexer().apply(annotations), new OverlapIndexer(null, true).apply(annotations));
+
+		final Predicate<Annotation> textFilter = new Predicate<Annotation>() {
+
+			public boolean apply(Annotation input) {
+				return QNameImpl.TEXT_QNAME.equals(input.getName());
+			}
+		};
+		assertEquals(new OverlapIndexer(textFilter).apply(annotations), new OverlapIndexer(textFilter, true)
+				.apply(annotations));
+	}
+}
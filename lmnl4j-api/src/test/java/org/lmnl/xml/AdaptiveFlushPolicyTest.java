@@ -0,0 +1,76 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the tuning of flush batch sizes.
+ */
+public class AdaptiveFlushPolicyTest {
+	private static final long MILLIS = 1000000;
+
+	@Test
+	public void growsOnFastFlushes() {
+		final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10, 1000, 100, Long.MAX_VALUE);
+		assertEquals(10, policy.getBatchSize());
+		assertFalse(policy.isFlushDue(9, 0));
+		assertTrue(policy.isFlushDue(10, 0));
+
+		// 1 ms per 10 entities: 1000 entities would meet the target
+		policy.flushed(10, 0, 1 * MILLIS);
+		assertEquals(505, policy.getBatchSize());
+		policy.flushed(505, 0, 50 * MILLIS);
+		assertTrue(policy.getBatchSize() > 505);
+		for (int fc = 0; fc < 10; fc++) {
+			policy.flushed(policy.getBatchSize(), 0, MILLIS);
+		}
+		assertEquals(1000, policy.getBatchSize());
+		assertEquals(12, policy.getFlushes());
+	}
+
+	@Test
+	public void shrinksOnSlowFlushes() {
+		final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10, 1000, 100, Long.MAX_VALUE);
+		policy.flushed(10, 0, 1 * MILLIS);
+		final int batchSize = policy.getBatchSize();
+
+		policy.flushed(batchSize, 0, 1000 * MILLIS);
+		assertTrue(policy.getBatchSize() < batchSize);
+		for (int fc = 0; fc < 10; fc++) {
+			policy.flushed(policy.getBatchSize(), 0, 1000 * MILLIS);
+		}
+		assertEquals(10, policy.getBatchSize());
+		assertEquals(1000, policy.getMaxFlushMillis());
+	}
+
+	@Test
+	public void flushesOnPendingBytes() {
+		final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(10, 1000, 100, 1024);
+		assertFalse(policy.isFlushDue(1, 1023));
+		assertTrue(policy.isFlushDue(1, 1024));
+	}
+}
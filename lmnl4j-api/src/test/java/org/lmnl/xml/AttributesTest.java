@@ -0,0 +1,87 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl.xml;
+
+import static javax.xml.XMLConstants.XML_NS_URI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.junit.Test;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+import org.lmnl.xml.XMLParser.Attributes;
+
+/**
+ * Tests the attribute arrays reused across XML nodes.
+ */
+public class AttributesTest {
+	private static final URI TEST_NS = URI.create("urn:lmnl-test-ns");
+
+	@Test
+	public void reuse() {
+		final Attributes attributes = new Attributes();
+		assertTrue(attributes.isEmpty());
+
+		attributes.add(QNameImpl.XML_SPACE, "preserve");
+		attributes.add(name("type"), "verse");
+		assertEquals(2, attributes.size());
+		assertEquals("preserve", attributes.get(new QNameImpl(XML_NS_URI, "space")));
+		assertEquals("verse", attributes.get(name("type")));
+		assertNull(attributes.get(new QNameImpl((URI) null, "type")));
+
+		final Map<QName, String> map = attributes.toMap();
+		attributes.clear();
+		assertTrue(attributes.isEmpty());
+		assertNull(attributes.get(name("type")));
+		assertEquals(2, map.size());
+		assertEquals("verse", map.get(name("type")));
+
+		attributes.add(name("n"), "1");
+		assertEquals(1, attributes.size());
+		assertEquals(name("n"), attributes.getName(0));
+		assertEquals("1", attributes.getValue(0));
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void growth() {
+		final Attributes attributes = new Attributes();
+		for (int ac = 0; ac < 100; ac++) {
+			attributes.add(name("a" + ac), Integer.toString(ac));
+		}
+		assertEquals(100, attributes.size());
+		for (int ac = 0; ac < 100; ac++) {
+			assertEquals(Integer.toString(ac), attributes.get(name("a" + ac)));
+		}
+		assertEquals(100, attributes.toMap().size());
+		assertTrue(attributes.estimateBytes() > 0);
+	}
+
+	private static QName name(String localName) {
+		return new QNameImpl(TEST_NS, localName);
+	}
+}
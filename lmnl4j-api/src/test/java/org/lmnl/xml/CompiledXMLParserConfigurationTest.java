@@ -0,0 +1,104 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+
+import org.junit.Test;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+
+/**
+ * Tests compiled parser configurations against the configurations they have
+ * been compiled from.
+ */
+public class CompiledXMLParserConfigurationTest {
+	private static final URI TEST_NS = URI.create("urn:lmnl-test-ns");
+
+	private static final String DOCUMENT = "<doc xmlns=\"urn:lmnl-test-ns\">"//
+			+ "<head>A  title</head>"//
+			+ "<lg>\n  <l>first <hi>line</hi></l>\n  <l>second<lb/>line</l>\n</lg>"//
+			+ "<note>skipped <hi>note</hi></note>"//
+			+ "<p>a  <note>kept <hi>note</hi></note> paragraph</p>"//
+			+ "</doc>";
+
+	@Test
+	public void flags() {
+		final SimpleXMLParserConfiguration configuration = configuration();
+		final CompiledXMLParserConfiguration compiled = configuration.compile();
+		assertEquals(CompiledXMLParserConfiguration.LINE_ELEMENT | CompiledXMLParserConfiguration.CONTAINER_ELEMENT,
+				compiled.getFlags(name("lg")));
+		assertEquals(CompiledXMLParserConfiguration.EXCLUDED, compiled.getFlags(name("note")));
+		assertEquals(CompiledXMLParserConfiguration.NOTABLE, compiled.getFlags(name("lb")));
+		assertEquals(0, compiled.getFlags(name("doc")));
+
+		for (String name : new String[] { "doc", "head", "lg", "l", "hi", "lb", "note", "p", "unknown" }) {
+			final QName qName = name(name);
+			assertEquals(CompiledXMLParserConfiguration.flagsOf(configuration, qName), compiled.getFlags(qName));
+			assertEquals(configuration.isLineElement(qName), compiled.isLineElement(qName));
+			assertEquals(configuration.isContainerElement(qName), compiled.isContainerElement(qName));
+			assertEquals(configuration.included(qName), compiled.included(qName));
+			assertEquals(configuration.excluded(qName), compiled.excluded(qName));
+			assertEquals(configuration.isNotable(qName), compiled.isNotable(qName));
+		}
+		assertEquals(configuration.getNotableCharacter(), compiled.getNotableCharacter());
+		assertEquals(configuration.isCompressingWhitespace(), compiled.isCompressingWhitespace());
+	}
+
+	@Test
+	public void parse() throws Exception {
+		final SimpleXMLParserConfiguration configuration = configuration();
+		final List<String> parsed = parse(configuration);
+		assertTrue(parsed.size() > 10);
+		assertEquals(parsed, parse(configuration.compile()));
+	}
+
+	/**
+	 * Parses the test document, yielding its text and its annotations with
+	 * their data.
+	 */
+	private List<String> parse(XMLParserConfiguration configuration) throws Exception {
+		final RecordingXMLParser xmlParser = new RecordingXMLParser();
+		return xmlParser.parse(xmlParser.load(DOCUMENT), configuration);
+	}
+
+	private static SimpleXMLParserConfiguration configuration() {
+		final SimpleXMLParserConfiguration configuration = new SimpleXMLParserConfiguration();
+		configuration.addLineElement(name("head"));
+		configuration.addLineElement(name("lg"));
+		configuration.addLineElement(name("l"));
+		configuration.addLineElement(name("p"));
+		configuration.addContainerElement(name("lg"));
+		configuration.exclude(name("note"));
+		configuration.include(name("p"));
+		configuration.addNotableElement(name("lb"));
+		return configuration;
+	}
+
+	private static QName name(String name) {
+		return new QNameImpl(TEST_NS, name);
+	}
+}
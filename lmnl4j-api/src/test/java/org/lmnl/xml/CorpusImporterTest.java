@@ -0,0 +1,164 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.List;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lmnl.AbstractTest;
+import org.lmnl.AnnotationRepository;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+import org.lmnl.Text;
+import org.lmnl.rdbms.RelationalAnnotationFactory;
+import org.lmnl.rdbms.TextRelation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the import of multiple documents, each in a transaction of its own.
+ */
+public class CorpusImporterTest extends AbstractTest {
+	private static final URI CORPUS_NS = URI.create("urn:lmnl-corpus-test");
+	private static final QName SHARED_NAME = new QNameImpl(CORPUS_NS, "shared");
+	private static final QName FAILURE_NAME = new QNameImpl(CORPUS_NS, "failure");
+
+	@Autowired
+	private XMLImporter xmlImporter;
+
+	@Autowired
+	private AnnotationRepository annotationRepository;
+
+	@Autowired
+	private RelationalAnnotationFactory annotationFactory;
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private int lastTextId;
+
+	@Before
+	public void recordTexts() {
+		lastTextId = new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+
+			public Integer doInTransaction(TransactionStatus status) {
+				final Number max = (Number) sessionFactory.getCurrentSession().createQuery(
+						"SELECT MAX(t.id) FROM " + TextRelation.class.getName() + " t").uniqueResult();
+				return (max == null ? 0 : max.intValue());
+			}
+		});
+	}
+
+	/**
+	 * Removes the source texts as well as the parsed texts of imported
+	 * documents.
+	 */
+	@After
+	public void removeImported() {
+		new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				for (Object text : sessionFactory.getCurrentSession().createQuery(
+						"FROM " + TextRelation.class.getName() + " t WHERE t.id > :lastTextId").setInteger(
+						"lastTextId", lastTextId).list()) {
+					annotationFactory.delete((Text) text);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void importCorpus() throws Exception {
+		final List<Source> sources = Lists.newArrayList();
+		for (String resource : new String[] { "archimedes-palimpsest-tei.xml", "george-algabal-tei.xml" }) {
+			sources.add(new StreamSource(getClass().getResource("/" + resource).toURI().toASCIIString()));
+		}
+		final Source missing = new StreamSource("file:/nonexistent/corpus-document.xml");
+		sources.add(missing);
+
+		// fails after having created names also used by another document
+		final Source failing = new StreamSource(new StringReader("<corpus xmlns=\"" + CORPUS_NS
+				+ "\"><shared>a</shared><failure/></corpus>"));
+		sources.add(failing);
+		final Source sharing = new StreamSource(new StringReader("<corpus xmlns=\"" + CORPUS_NS
+				+ "\"><shared>b</shared></corpus>"));
+		sources.add(sharing);
+
+		final CorpusImporter corpusImporter = new CorpusImporter();
+		corpusImporter.setImporter(xmlImporter);
+		corpusImporter.setThreads(2);
+
+		final List<Integer> progress = Lists.newArrayList();
+		final CorpusImporter.Report report = corpusImporter.importCorpus(sources, new SimpleXMLParserConfiguration() {
+
+			@Override
+			public boolean isLineElement(QName name) {
+				if (FAILURE_NAME.equals(name)) {
+					throw new IllegalStateException(name.toString());
+				}
+				return super.isLineElement(name);
+			}
+		}, new CorpusImportListener() {
+
+			public void imported(Source source, Text text, int completed, int total) {
+				progress.add(completed);
+			}
+
+			public void failed(Source source, Throwable cause, int completed, int total) {
+				progress.add(completed);
+			}
+		});
+
+		assertEquals(5, report.getTotal());
+		assertEquals(Lists.newArrayList(1, 2, 3, 4, 5), progress);
+		assertEquals(3, report.getImported().size());
+		assertEquals(2, report.getFailures().size());
+		assertTrue(report.getFailures().containsKey(missing));
+		assertTrue(report.getFailures().containsKey(failing));
+		for (Text text : report.getImported().values()) {
+			assertTrue(Iterables.size(annotationRepository.find(text)) > 0);
+		}
+		assertEquals(1, Iterables.size(annotationRepository.find(report.getImported().get(sharing), SHARED_NAME)));
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests the counting of serialized characters while loading XML sources.
+ */
+public class CountingWriterTest {
+	/**
+	 * Contains a character outside of the Basic Multilingual Plane, which
+	 * takes two chars.
+	 */
+	private static final String FRAKTUR_A = "\uD835\uDD04";
+
+	@Test
+	public void writes() throws IOException {
+		final StringWriter out = new StringWriter();
+		final XMLParser.CountingWriter writer = new XMLParser.CountingWriter(out);
+		writer.write('a');
+		writer.write(FRAKTUR_A.charAt(0));
+		writer.write(FRAKTUR_A.charAt(1));
+		writer.write(("xx" + FRAKTUR_A + "yy").toCharArray(), 2, 3);
+		writer.write("<p>" + FRAKTUR_A + "</p>", 3, 2);
+		writer.write("zz" + FRAKTUR_A, 1, 3);
+		writer.write("");
+		writer.flush();
+
+		final String written = out.toString();
+		assertEquals("a" + FRAKTUR_A + FRAKTUR_A + "y" + FRAKTUR_A + "z" + FRAKTUR_A, written);
+		assertEquals(written.length(), writer.getCount());
+	}
+
+	@Test
+	public void load() throws Exception {
+		final String document = "<doc a=\"&quot;" + FRAKTUR_A + "&quot;\">" + FRAKTUR_A + " &amp; &#x1D504;"
+				+ "<![CDATA[<" + FRAKTUR_A + ">]]><!-- " + FRAKTUR_A + " --></doc>";
+
+		final RecordingXMLParser xmlParser = new RecordingXMLParser();
+		final String serialized = xmlParser.load(document);
+		assertTrue(serialized.contains(FRAKTUR_A));
+		assertEquals(serialized.length(), xmlParser.contentLength);
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the encoding of XML node paths.
+ */
+public class NodePathTest {
+
+	private static final int[] POSITIONS = { 0, 1, 63, 64, 4095, 4096, (1 << 18) - 1, 1 << 18, (1 << 24) - 1, 1 << 24,
+			(1 << 30) - 1 };
+
+	@Test
+	public void roundTrip() {
+		for (int position : POSITIONS) {
+			final int[] path = { 1, position, 2 };
+			assertArrayEquals(path, NodePath.decode(NodePath.encode(path)));
+			assertEquals(3, NodePath.depth(NodePath.encode(path)));
+		}
+		assertEquals("1.70.5000", NodePath.toString(NodePath.encode(1, 70, 5000)));
+	}
+
+	@Test
+	public void documentOrder() {
+		for (int pc = 1; pc < POSITIONS.length; pc++) {
+			final byte[] preceding = NodePath.encode(1, POSITIONS[pc - 1], 7);
+			final byte[] following = NodePath.encode(1, POSITIONS[pc]);
+			assertTrue(NodePath.compare(preceding, following) < 0);
+		}
+		assertTrue(NodePath.compare(NodePath.encode(1), NodePath.encode(1, 0)) < 0);
+	}
+
+	@Test
+	public void descendantRange() {
+		final byte[] node = NodePath.encode(1, 64);
+		final byte[] upperBound = NodePath.upperBound(node);
+		for (int position : POSITIONS) {
+			final byte[] descendant = NodePath.encode(1, 64, position, 1);
+			assertTrue(NodePath.compare(node, descendant) < 0);
+			assertTrue(NodePath.compare(descendant, upperBound) < 0);
+
+			final byte[] following = NodePath.encode(1, 65, position);
+			assertTrue(NodePath.compare(upperBound, following) < 0);
+		}
+	}
+
+	@Test
+	public void ancestors() {
+		final byte[] node = NodePath.encode(1, 4096, 3);
+		final byte[][] ancestors = NodePath.ancestors(node);
+		assertEquals(2, ancestors.length);
+		assertArrayEquals(NodePath.encode(1), ancestors[0]);
+		assertArrayEquals(NodePath.encode(1, 4096), ancestors[1]);
+		assertArrayEquals(ancestors[1], NodePath.parent(node));
+		assertEquals(0, NodePath.parent(NodePath.encode(1)).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativePosition() {
+		NodePath.encode(1, -1);
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+import org.lmnl.Range;
+
+/**
+ * Tests the translation of offsets between texts and their XML sources.
+ */
+public class OffsetMappingTest {
+
+	/**
+	 * Maps a text with markup, a compressed whitespace run and an inserted
+	 * line break.
+	 */
+	private OffsetMapping mapping() {
+		return new OffsetMapping.Builder()//
+				.add(new Range(0, 0), new Range(0, 10))// <doc><p>
+				.add(new Range(0, 5), new Range(10, 15))// hello
+				.add(new Range(5, 5), new Range(15, 23))// </p><p>
+				.add(new Range(5, 6), new Range(23, 23))// inserted line break
+				.add(new Range(6, 8), new Range(23, 28))// "a   b"
+				.build();
+	}
+
+	@Test
+	public void textToSource() {
+		final OffsetMapping mapping = mapping();
+		assertEquals(5, mapping.size());
+		assertEquals(-1, mapping.toSource(-1));
+		assertEquals(10, mapping.toSource(0));
+		assertEquals(13, mapping.toSource(3));
+		assertEquals(23, mapping.toSource(5));
+		assertEquals(23, mapping.toSource(6));
+		assertEquals(24, mapping.toSource(7));
+		assertEquals(new Range(10, 15), mapping.toSource(new Range(0, 5)));
+	}
+
+	@Test
+	public void sourceToText() {
+		final OffsetMapping mapping = mapping();
+		assertEquals(0, mapping.toText(4));
+		assertEquals(2, mapping.toText(12));
+		assertEquals(5, mapping.toText(18));
+		assertEquals(6, mapping.toText(23));
+		assertEquals(8, mapping.toText(27));
+		assertEquals(new Range(0, 5), mapping.toText(new Range(10, 15)));
+	}
+
+	@Test
+	public void serialization() throws Exception {
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buf);
+		out.writeObject(mapping());
+		out.close();
+
+		final OffsetMapping read = (OffsetMapping) new ObjectInputStream(new ByteArrayInputStream(buf.toByteArray())).readObject();
+		assertEquals(5, read.size());
+		assertEquals(new Range(23, 28), read.getSourceRange(4));
+		assertEquals(24, read.toSource(7));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unorderedDeltas() {
+		new OffsetMapping.Builder().add(new Range(5, 6), new Range(5, 6)).add(new Range(0, 5), new Range(0, 5));
+	}
+}
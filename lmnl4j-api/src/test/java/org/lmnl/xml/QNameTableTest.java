@@ -0,0 +1,83 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl.xml;
+
+import static javax.xml.XMLConstants.XML_NS_URI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.util.List;
+
+import org.junit.Test;
+import org.lmnl.QName;
+import org.lmnl.QNameImpl;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the interning of XML names during parsing.
+ */
+public class QNameTableTest {
+	private static final String TEST_NS = "urn:lmnl-test-ns";
+
+	@Test
+	public void interning() {
+		final QNameTable names = new QNameTable();
+		final QName name = names.get(TEST_NS, "p");
+		assertSame(name, names.get(TEST_NS, "p"));
+		assertSame(name, names.get(new String(TEST_NS), new String("p")));
+		assertEquals(new QNameImpl(URI.create(TEST_NS), "p"), name);
+	}
+
+	@Test
+	public void namespaces() {
+		final QNameTable names = new QNameTable();
+		final QName noNamespace = names.get(null, "p");
+		assertNull(noNamespace.getNamespaceURI());
+		assertSame(noNamespace, names.get("", "p"));
+
+		final QName namespaced = names.get(TEST_NS, "p");
+		assertFalse(noNamespace.equals(namespaced));
+		assertFalse(namespaced.equals(names.get(XML_NS_URI, "p")));
+		assertSame(namespaced.getNamespaceURI(), names.get(TEST_NS, "l").getNamespaceURI());
+
+		assertEquals(QNameImpl.XML_SPACE, names.get(XML_NS_URI, "space"));
+	}
+
+	@Test
+	public void rehashing() {
+		final QNameTable names = new QNameTable(2);
+		final List<QName> interned = Lists.newArrayList();
+		for (int nc = 0; nc < 1000; nc++) {
+			interned.add(names.get(nc % 2 == 0 ? TEST_NS : null, "n" + nc));
+		}
+		for (int nc = 0; nc < 1000; nc++) {
+			final QName name = names.get(nc % 2 == 0 ? TEST_NS : "", "n" + nc);
+			assertSame(interned.get(nc), name);
+			assertEquals("n" + nc, name.getLocalName());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.lmnl.xml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.lmnl.Annotation;
+import org.lmnl.QName;
+import org.lmnl.Range;
+import org.lmnl.Text;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+
+/**
+ * Parses XML without any repositories, recording the written text contents
+ * and the generated annotations instead.
+ */
+class RecordingXMLParser extends XMLParser {
+	/**
+	 * The contents passed to {@link #updateText(Text, Reader, int)} last.
+	 */
+	String content;
+
+	/**
+	 * The content length passed to {@link #updateText(Text, Reader, int)}
+	 * last.
+	 */
+	int contentLength = -1;
+
+	private final List<String> annotations = Lists.newArrayList();
+
+	/**
+	 * Serializes an XML document.
+	 * 
+	 * @return the serialized document
+	 */
+	String load(String xml) throws IOException, TransformerException {
+		load(null, new StreamSource(new StringReader(xml)));
+		return content;
+	}
+
+	/**
+	 * Parses a serialized XML document.
+	 * 
+	 * @return the parsed text, followed by the annotations and offset deltas
+	 *         in the order they have been ended
+	 */
+	List<String> parse(String xml, XMLParserConfiguration configuration) throws IOException {
+		annotations.clear();
+		final Session session = newSession(null, null, configuration);
+		try {
+			session.read(new StringReader(xml), xml.length());
+		} finally {
+			session.dispose();
+		}
+		final List<String> parsed = Lists.newArrayList(content);
+		parsed.addAll(annotations);
+		return parsed;
+	}
+
+	@Override
+	protected void updateText(Text text, Reader reader, int contentLength) throws IOException {
+		this.content = CharStreams.toString(reader);
+		this.contentLength = contentLength;
+	}
+
+	@Override
+	protected Annotation startAnnotation(Session session, QName name, Attributes attributes, int start,
+			Iterable<Integer> nodePath) {
+		return new OpenAnnotation(name, start, attributes.toMap());
+	}
+
+	@Override
+	protected void endAnnotation(Session session, Annotation annotation, int end) {
+		final Range range = new Range(annotation.getRange().getStart(), end);
+		annotations.add(Objects.toStringHelper(annotation).addValue(annotation.getName()).addValue(range)
+				.addValue(annotation.getData()).toString());
+	}
+
+	@Override
+	protected void newOffsetDelta(Session session, Range textRange, Range sourceRange) {
+		annotations.add(Objects.toStringHelper(Range.class).addValue(textRange).addValue(sourceRange).toString());
+	}
+
+	private static class OpenAnnotation implements Annotation {
+		private final QName name;
+		private final int start;
+		private final Object data;
+
+		private OpenAnnotation(QName name, int start, Object data) {
+			this.name = name;
+			this.start = start;
+			this.data = data;
+		}
+
+		public QName getName() {
+			return name;
+		}
+
+		public Range getRange() {
+			return new Range(start, start);
+		}
+
+		public Object getData() {
+			return data;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Layered Markup and Annotation Language for Java (lmnl4j):
+ * implementation of LMNL, a markup language supporting layered and/or
+ * overlapping annotations.
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.lmnl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests buffering text in memory and in memory-mapped files.
+ */
+public class TextBufferTest {
+	private static final int CHUNK_SIZE = 1 << 12;
+	private static final int REGION_SIZE = 1 << 20;
+
+	private TextBuffer buffer;
+	private StringBuilder expected;
+
+	@Before
+	public void createBuffer() {
+		buffer = new TextBuffer(CHUNK_SIZE + 100);
+		expected = new StringBuilder();
+	}
+
+	@After
+	public void disposeBuffer() throws IOException {
+		buffer.dispose();
+	}
+
+	@Test
+	public void appendAcrossChunks() throws IOException {
+		appendChars(CHUNK_SIZE - 3);
+		appendChars(6);
+		appendArray(50);
+		assertFalse(buffer.isMapped());
+		assertContents();
+
+		appendArray(CHUNK_SIZE);
+		assertTrue(buffer.isMapped());
+		assertContents();
+	}
+
+	@Test
+	public void appendAcrossRegions() throws IOException {
+		appendArray(REGION_SIZE - 3);
+		assertTrue(buffer.isMapped());
+		appendChars(6);
+		appendArray(REGION_SIZE - 8);
+		appendArray(10);
+		assertEquals(2 * REGION_SIZE + 5, buffer.length());
+		assertContents();
+	}
+
+	@Test
+	public void readAfterSpilling() throws IOException {
+		appendArray(REGION_SIZE + 10);
+		assertTrue(buffer.isMapped());
+
+		final Reader reader = buffer.reader();
+		final char[] read = new char[20];
+		assertEquals(20, reader.read(read, 0, 20));
+		assertEquals(expected.substring(0, 20), new String(read));
+
+		assertEquals(REGION_SIZE - 30, reader.skip(REGION_SIZE - 30));
+		assertEquals(20, reader.read(read, 0, 20));
+		assertEquals(expected.substring(REGION_SIZE - 10, REGION_SIZE + 10), new String(read));
+
+		assertEquals(0, reader.skip(10));
+		assertEquals(-1, reader.read(read, 0, 20));
+	}
+
+	@Test
+	public void disposeDeletesFile() throws IOException {
+		appendArray(CHUNK_SIZE);
+		assertNull(buffer.getFile());
+
+		appendArray(CHUNK_SIZE);
+		final File file = buffer.getFile();
+		assertTrue(file.isFile());
+
+		buffer.dispose();
+		assertFalse(file.exists());
+		assertNull(buffer.getFile());
+		assertEquals(0, buffer.length());
+	}
+
+	private void appendChars(int count) throws IOException {
+		for (int cc = 0; cc < count; cc++) {
+			final char c = charAt(expected.length());
+			buffer.append(c);
+			expected.append(c);
+		}
+	}
+
+	private void appendArray(int count) throws IOException {
+		final char[] chars = new char[count + 2];
+		for (int cc = 0; cc < count; cc++) {
+			chars[cc + 1] = charAt(expected.length() + cc);
+		}
+		buffer.append(chars, 1, count);
+		expected.append(chars, 1, count);
+	}
+
+	private void assertContents() {
+		final int length = expected.length();
+		assertEquals(length, buffer.length());
+		for (int boundary = CHUNK_SIZE; boundary < length; boundary += CHUNK_SIZE) {
+			assertEquals(expected.charAt(boundary - 1), buffer.charAt(boundary - 1));
+			assertEquals(expected.charAt(boundary), buffer.charAt(boundary));
+
+			final int start = boundary - 2;
+			final int end = Math.min(length, boundary + 2);
+			final char[] chars = new char[end - start + 1];
+			buffer.getChars(start, end, chars, 1);
+			assertEquals(expected.substring(start, end), new String(chars, 1, end - start));
+		}
+		assertEquals(expected.toString(), buffer.toString());
+	}
+
+	private static char charAt(int offset) {
+		return (char) ('a' + (offset * 7) % 26);
+	}
+}
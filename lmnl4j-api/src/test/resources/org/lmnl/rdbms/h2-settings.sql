@@ -0,0 +1,2 @@
+-- concurrent writers wait for each other's table locks instead of failing after one second
+SET DEFAULT_LOCK_TIMEOUT 60000;